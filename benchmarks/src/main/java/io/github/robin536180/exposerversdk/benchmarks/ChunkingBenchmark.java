@@ -0,0 +1,56 @@
+package io.github.robin536180.exposerversdk.benchmarks;
+
+import io.github.robin536180.exposerversdk.ExpoPushMessage;
+import io.github.robin536180.exposerversdk.PushClient;
+import io.github.robin536180.exposerversdk.PushClientException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PushClient#chunkPushNotifications(List)} over single-recipient messages and over one message
+ * with every recipient, and {@link PushClient#_chunkItems(List, long)} over receipt ids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ChunkingBenchmark {
+    @Param({"1", "100", "10000", "1000000"})
+    public int recipients;
+
+    private PushClient client;
+    private List<ExpoPushMessage> singleRecipientMessages;
+    private List<ExpoPushMessage> sharedMessage;
+    private List<String> receiptIds;
+
+    @Setup
+    public void setUp() throws PushClientException {
+        client = new PushClient();
+        singleRecipientMessages = Fixtures.messages(recipients, Fixtures.SMALL);
+        ExpoPushMessage shared = new ExpoPushMessage(Fixtures.tokens(recipients));
+        shared.setTitle("New message");
+        shared.setData(Fixtures.data(Fixtures.SMALL));
+        sharedMessage = Collections.singletonList(shared);
+        receiptIds = Fixtures.receiptIds(recipients);
+    }
+
+    @Benchmark
+    public List<List<ExpoPushMessage>> chunkSingleRecipientMessages() {
+        return client.chunkPushNotifications(singleRecipientMessages);
+    }
+
+    @Benchmark
+    public List<List<ExpoPushMessage>> chunkSharedMessage() {
+        return client.chunkPushNotifications(sharedMessage);
+    }
+
+    @Benchmark
+    public List<List<String>> chunkItems() {
+        return client._chunkItems(receiptIds, client.PUSH_NOTIFICATION_RECEIPT_CHUNK_LIMIT);
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.robin536180.exposerversdk.benchmarks;
+
+import io.github.robin536180.exposerversdk.ExpoPushMessage;
+import io.github.robin536180.exposerversdk.ExpoPushTicket;
+import io.github.robin536180.exposerversdk.enums.Status;
+import io.github.robin536180.exposerversdk.enums.TicketError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messages, tokens and responses shaped like real traffic.
+ */
+final class Fixtures {
+    static final String SMALL = "small";
+    static final String LARGE = "large";
+
+    private Fixtures() {
+    }
+
+    static String token(int i) {
+        return String.format("ExponentPushToken[%022d]", i);
+    }
+
+    static List<String> tokens(int count) {
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(token(i));
+        }
+        return tokens;
+    }
+
+    /**
+     * A small map holds a couple of ids, a large one about 3 KB, close to what fits in Expo's 4 KB limit.
+     */
+    static Map<String, Object> data(String size) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("type", "chat");
+        data.put("conversationId", "c0ffee00-0000-4000-8000-000000000000");
+        if (LARGE.equals(size)) {
+            StringBuilder filler = new StringBuilder();
+            for (int i = 0; i < 56; i++) {
+                filler.append((char) ('a' + i % 26));
+            }
+            for (int i = 0; i < 48; i++) {
+                data.put("field" + i, filler.toString());
+            }
+        }
+        return data;
+    }
+
+    /**
+     * One message per recipient, all sharing the same data map.
+     */
+    static List<ExpoPushMessage> messages(int recipients, String dataSize) {
+        Map<String, Object> data = data(dataSize);
+        List<ExpoPushMessage> messages = new ArrayList<>(recipients);
+        for (int i = 0; i < recipients; i++) {
+            ExpoPushMessage message = new ExpoPushMessage(Collections.singletonList(token(i)));
+            message.setTitle("New message");
+            message.setBody("You have a new message from Alice");
+            message.setData(data);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * One ticket per recipient; every {@code errorEvery}th is a DeviceNotRegistered error.
+     */
+    static String ticketsResponse(int count, int errorEvery) {
+        StringBuilder sb = new StringBuilder("{\"data\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            if (errorEvery > 0 && i % errorEvery == 0) {
+                sb.append("{\"status\":\"error\",\"message\":\"\\\"").append(token(i))
+                        .append("\\\" is not a registered push notification recipient\",")
+                        .append("\"details\":{\"error\":\"DeviceNotRegistered\"}}");
+            } else {
+                sb.append("{\"status\":\"ok\",\"id\":\"").append(String.format("%08d-0000-4000-8000-000000000000", i)).append("\"}");
+            }
+        }
+        return sb.append("]}").toString();
+    }
+
+    static String receiptsResponse(List<String> ids, int errorEvery) {
+        StringBuilder sb = new StringBuilder("{\"data\":{");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('"').append(ids.get(i)).append("\":");
+            if (errorEvery > 0 && i % errorEvery == 0) {
+                sb.append("{\"status\":\"error\",\"message\":\"The message is too big\",")
+                        .append("\"details\":{\"error\":\"MessageTooBig\"}}");
+            } else {
+                sb.append("{\"status\":\"ok\"}");
+            }
+        }
+        return sb.append("}}").toString();
+    }
+
+    static List<String> receiptIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(String.format("%08d-0000-4000-8000-000000000000", i));
+        }
+        return ids;
+    }
+
+    static List<ExpoPushTicket> tickets(int count, int errorEvery) {
+        List<ExpoPushTicket> tickets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ExpoPushTicket ticket = new ExpoPushTicket();
+            if (errorEvery > 0 && i % errorEvery == 0) {
+                ticket.setStatus(Status.ERROR);
+                ticket.setDetails(new ExpoPushTicket.Details().setError(TicketError.DEVICENOTREGISTERED));
+            } else {
+                ticket.setStatus(Status.OK);
+                ticket.setId(String.format("%08d-0000-4000-8000-000000000000", i));
+            }
+            tickets.add(ticket);
+        }
+        return tickets;
+    }
+}
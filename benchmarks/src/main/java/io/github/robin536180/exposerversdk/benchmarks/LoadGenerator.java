@@ -0,0 +1,216 @@
+package io.github.robin536180.exposerversdk.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.robin536180.exposerversdk.ExpoPushMessage;
+import io.github.robin536180.exposerversdk.ExpoPushTicket;
+import io.github.robin536180.exposerversdk.ExpoStandInServer;
+import io.github.robin536180.exposerversdk.PushClient;
+import io.github.robin536180.exposerversdk.PushNotificationException;
+import io.github.robin536180.exposerversdk.metrics.DefaultPushMetrics;
+import io.github.robin536180.exposerversdk.metrics.LatencyHistogram;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives synthetic messages through {@link PushClient} against {@link ExpoStandInServer} (or any
+ * endpoint given with {@code --url}) and writes the results as JSON, so configurations and releases
+ * can be compared.
+ * <pre>
+ * java -cp target/benchmarks.jar io.github.robin536180.exposerversdk.benchmarks.LoadGenerator \
+ *     --messages 200000 --fanout 1 --payload large --concurrency 32 --latency-ms 80 --out result.json
+ * </pre>
+ * Reported: notifications per second, chunk latency percentiles, peak thread count, peak heap and
+ * allocation rate. Allocation is summed over threads alive at the end of the run, so it misses threads
+ * that exited during it.
+ */
+public class LoadGenerator {
+    private long messages = 100_000;
+    private int fanout = 1;
+    private String payload = Fixtures.SMALL;
+    private int concurrency = 16;
+    private long warmupMessages = 10_000;
+    private double latencyMillis = 50;
+    private double latencySigma = 0.5;
+    private double ticketErrorRate = 0.01;
+    private URL url = null;
+    private String label = "default";
+    private File out = null;
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        generator._parse(args);
+        Map<String, Object> result = generator.run();
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        if (generator.out != null) {
+            mapper.writeValue(generator.out, result);
+        }
+        System.out.println(mapper.writeValueAsString(result));
+    }
+
+    public Map<String, Object> run() throws Exception {
+        ExpoStandInServer server = null;
+        try {
+            URL target = url;
+            if (target == null) {
+                server = new ExpoStandInServer();
+                server.sendLatency = ExpoStandInServer.Latency.logNormal(latencyMillis, latencySigma);
+                server.ticketErrorRate = ticketErrorRate;
+                target = server.getBaseApiUrl();
+            }
+
+            PushClient client = new PushClient();
+            client.setBaseApiUrl(target);
+            if (warmupMessages > 0) _drive(client, warmupMessages, new LatencyHistogram());
+
+            DefaultPushMetrics metrics = new DefaultPushMetrics();
+            client.setPushMetrics(metrics);
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+            long allocatedBefore = _allocatedBytes(threads);
+
+            LatencyHistogram chunkLatency = new LatencyHistogram();
+            long start = System.nanoTime();
+            long[] outcome = _drive(client, messages, chunkLatency);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long allocated = _allocatedBytes(threads) - allocatedBefore;
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("label", label);
+            result.put("target", server != null ? "stand-in" : target.toString());
+            result.put("javaVersion", System.getProperty("java.version"));
+            result.put("messages", messages);
+            result.put("fanout", fanout);
+            result.put("payload", payload);
+            result.put("concurrency", concurrency);
+            result.put("notifications", outcome[0]);
+            result.put("failedNotifications", outcome[1]);
+            result.put("seconds", seconds);
+            result.put("notificationsPerSecond", outcome[0] / seconds);
+
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("chunks", chunkLatency.getCount());
+            latency.put("p50Millis", chunkLatency.getValueAtPercentile(50) / 1e6);
+            latency.put("p99Millis", chunkLatency.getValueAtPercentile(99) / 1e6);
+            latency.put("p999Millis", chunkLatency.getValueAtPercentile(99.9) / 1e6);
+            latency.put("maxMillis", chunkLatency.getMax() / 1e6);
+            latency.put("httpP99Millis", metrics.getHttpLatency().getValueAtPercentile(99) / 1e6);
+            result.put("chunkLatency", latency);
+
+            Map<String, Object> jvm = new LinkedHashMap<>();
+            jvm.put("peakThreads", threads.getPeakThreadCount());
+            jvm.put("peakHeapBytes", _peakHeapBytes());
+            jvm.put("allocatedBytes", allocated);
+            jvm.put("allocationBytesPerSecond", allocated / seconds);
+            jvm.put("allocationBytesPerNotification", outcome[0] > 0 ? (double) allocated / outcome[0] : 0);
+            result.put("jvm", jvm);
+            return result;
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+
+    // Returns the notifications sent and failed; at most `concurrency` chunks are in flight.
+    private long[] _drive(PushClient client, long count, LatencyHistogram chunkLatency) throws InterruptedException {
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicLong sent = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Map<String, Object> data = Fixtures.data(payload);
+        long perBatch = Math.max(1, client.PUSH_NOTIFICATION_CHUNK_LIMIT * 10 / fanout);
+        int recipient = 0;
+        for (long generated = 0; generated < count; ) {
+            List<ExpoPushMessage> batch = new ArrayList<>();
+            for (; generated < count && batch.size() < perBatch; generated++) {
+                List<String> to = new ArrayList<>(fanout);
+                for (int i = 0; i < fanout; i++) {
+                    to.add(Fixtures.token(recipient++));
+                }
+                ExpoPushMessage message = new ExpoPushMessage(to);
+                message.setTitle("Load test");
+                message.setBody("Message " + generated);
+                message.setData(data);
+                batch.add(message);
+            }
+
+            for (List<ExpoPushMessage> chunk : client.chunkPushNotifications(batch)) {
+                int recipients = chunk.stream().mapToInt(m -> m.getTo().size()).sum();
+                permits.acquire();
+                long start = System.nanoTime();
+                CompletableFuture<List<ExpoPushTicket>> request;
+                try {
+                    request = client.sendPushNotificationsAsync(chunk);
+                } catch (PushNotificationException e) {
+                    request = new CompletableFuture<>();
+                    request.completeExceptionally(e);
+                }
+                request.whenComplete((tickets, throwable) -> {
+                    chunkLatency.record(System.nanoTime() - start);
+                    (throwable == null ? sent : failed).addAndGet(recipients);
+                    permits.release();
+                });
+            }
+        }
+        if (!permits.tryAcquire(concurrency, 10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Requests did not finish");
+        }
+        return new long[]{sent.get(), failed.get()};
+    }
+
+    private static long _allocatedBytes(ThreadMXBean threads) {
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+        long total = 0;
+        for (long allocated : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) total += allocated;
+        }
+        return total;
+    }
+
+    private static long _peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private void _parse(String[] args) throws Exception {
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--messages": messages = Long.parseLong(value); break;
+                case "--fanout": fanout = Integer.parseInt(value); break;
+                case "--payload": payload = value; break;
+                case "--concurrency": concurrency = Integer.parseInt(value); break;
+                case "--warmup": warmupMessages = Long.parseLong(value); break;
+                case "--latency-ms": latencyMillis = Double.parseDouble(value); break;
+                case "--latency-sigma": latencySigma = Double.parseDouble(value); break;
+                case "--ticket-error-rate": ticketErrorRate = Double.parseDouble(value); break;
+                case "--url": url = new URL(value); break;
+                case "--label": label = value; break;
+                case "--out": out = new File(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+            i++;
+        }
+        if (messages <= 0 || fanout <= 0 || concurrency <= 0) {
+            throw new IllegalArgumentException("--messages, --fanout and --concurrency must be positive");
+        }
+    }
+}
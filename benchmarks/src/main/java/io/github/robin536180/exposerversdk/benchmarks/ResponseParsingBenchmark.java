@@ -0,0 +1,73 @@
+package io.github.robin536180.exposerversdk.benchmarks;
+
+import io.github.robin536180.exposerversdk.ChunkTiming;
+import io.github.robin536180.exposerversdk.ExpoPushMessage;
+import io.github.robin536180.exposerversdk.ExpoPushReceipt;
+import io.github.robin536180.exposerversdk.ExpoPushTicket;
+import io.github.robin536180.exposerversdk.PushClient;
+import io.github.robin536180.exposerversdk.PushClientException;
+import io.github.robin536180.exposerversdk.PushNotificationException;
+import io.github.robin536180.exposerversdk.PushNotificationReceiptsException;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing ticket and receipt responses of full chunks, with one error in {@code errorEvery} items.
+ * Sending skips serialization; fetching receipts includes writing the small id list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseParsingBenchmark {
+    @Param({"1", "100"})
+    public int tickets;
+
+    @Param({"0", "10"})
+    public int errorEvery;
+
+    private CannedResponseClient sendClient;
+    private PushClient receiptsClient;
+    private List<ExpoPushMessage> chunk;
+    private List<String> receiptIds;
+
+    @Setup
+    public void setUp() throws PushClientException {
+        chunk = Fixtures.messages(tickets, Fixtures.SMALL);
+        sendClient = new CannedResponseClient(Fixtures.ticketsResponse(tickets, errorEvery));
+
+        receiptIds = Fixtures.receiptIds(tickets * 3);
+        String receipts = Fixtures.receiptsResponse(receiptIds, errorEvery);
+        receiptsClient = new PushClient();
+        receiptsClient.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(receipts);
+    }
+
+    @Benchmark
+    public List<ExpoPushTicket> parseTickets() throws PushNotificationException {
+        return sendClient.sendPushNotificationsAsync(chunk).join();
+    }
+
+    @Benchmark
+    public List<ExpoPushReceipt> parseReceipts() throws PushNotificationReceiptsException {
+        return receiptsClient.getPushNotificationReceiptsAsync(receiptIds).join();
+    }
+
+    static class CannedResponseClient extends PushClient {
+        private final CompletableFuture<String> response;
+
+        CannedResponseClient(String response) throws PushClientException {
+            this.response = CompletableFuture.completedFuture(response);
+        }
+
+        @Override
+        protected CompletableFuture<String> _postNotificationAsync(URL url, List<? extends ExpoPushMessage> messages, ChunkTiming timing) {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.robin536180.exposerversdk.benchmarks;
+
+import io.github.robin536180.exposerversdk.ExpoPushMessage;
+import io.github.robin536180.exposerversdk.PushClient;
+import io.github.robin536180.exposerversdk.PushClientException;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning one chunk into the request body, through the same code the client sends with; the resolver
+ * just hands the JSON back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    @Param({"1", "100"})
+    public int messages;
+
+    @Param({Fixtures.SMALL, Fixtures.LARGE})
+    public String data;
+
+    private SerializingClient client;
+    private List<ExpoPushMessage> chunk;
+    private URL url;
+
+    @Setup
+    public void setUp() throws PushClientException, MalformedURLException {
+        client = new SerializingClient();
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(json);
+        chunk = Fixtures.messages(messages, data);
+        url = new URL(client.getBaseApiUrl() + "/push/send");
+    }
+
+    @Benchmark
+    public String serializeChunk() {
+        return client.serialize(url, chunk);
+    }
+
+    static class SerializingClient extends PushClient {
+        SerializingClient() throws PushClientException {
+        }
+
+        String serialize(URL url, List<ExpoPushMessage> chunk) {
+            return _postNotificationAsync(url, chunk).join();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.robin536180.exposerversdk.benchmarks;
+
+import io.github.robin536180.exposerversdk.ExpoPushClassification;
+import io.github.robin536180.exposerversdk.ExpoPushMessage;
+import io.github.robin536180.exposerversdk.ExpoPushMessageTicketPair;
+import io.github.robin536180.exposerversdk.ExpoPushTicket;
+import io.github.robin536180.exposerversdk.PushClient;
+import io.github.robin536180.exposerversdk.PushClientException;
+import io.github.robin536180.exposerversdk.enums.TicketError;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairing messages with tickets and sorting the pairs by outcome, with 1% error tickets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TicketHelpersBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int recipients;
+
+    private PushClient client;
+    private List<ExpoPushMessage> messages;
+    private List<ExpoPushTicket> tickets;
+    private List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs;
+
+    @Setup
+    public void setUp() throws PushClientException {
+        client = new PushClient();
+        messages = Fixtures.messages(recipients, Fixtures.SMALL);
+        tickets = Fixtures.tickets(recipients, 100);
+        pairs = client.zipMessagesTickets(messages, tickets);
+    }
+
+    @Benchmark
+    public List<ExpoPushMessageTicketPair<ExpoPushMessage>> zipMessagesTickets() {
+        return client.zipMessagesTickets(messages, tickets);
+    }
+
+    @Benchmark
+    public List<ExpoPushMessageTicketPair<ExpoPushMessage>> filterAllSuccessfulMessages() {
+        return client.filterAllSuccessfulMessages(pairs);
+    }
+
+    @Benchmark
+    public List<ExpoPushMessageTicketPair<ExpoPushMessage>> filterAllMessagesWithError() {
+        return client.filterAllMessagesWithError(pairs, TicketError.DEVICENOTREGISTERED);
+    }
+
+    @Benchmark
+    public ExpoPushClassification<ExpoPushMessageTicketPair<ExpoPushMessage>, TicketError> classifyMessagesTickets() {
+        return client.classifyMessagesTickets(pairs);
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.robin536180.exposerversdk.benchmarks;
+
+import io.github.robin536180.exposerversdk.PushClient;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PushClient#isExponentPushToken(String)} on each token form, next to the {@code String.matches}
+ * check it replaced, and {@link PushClient#findInvalidPushTokens(java.util.Collection)} over lists with
+ * 1% invalid tokens.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenValidationBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int tokens;
+
+    private final String[] forms = {
+            "ExponentPushToken[xxxxxxxxxxxxxxxxxxxxxx]",
+            "ExpoPushToken[xxxxxxxxxxxxxxxxxxxxxx]",
+            "F5741A13-BCDA-434B-A316-5DC0E6FFA94F",
+            "not-a-token"
+    };
+    private List<String> tokenList;
+
+    @Setup
+    public void setUp() {
+        tokenList = new ArrayList<>(Fixtures.tokens(tokens));
+        for (int i = 0; i < tokens; i += 100) {
+            tokenList.set(i, "invalid-" + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void isExponentPushToken(Blackhole blackhole) {
+        for (String token : forms) {
+            blackhole.consume(PushClient.isExponentPushToken(token));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public void isExponentPushTokenRegex(Blackhole blackhole) {
+        for (String token : forms) {
+            blackhole.consume(_isExponentPushTokenRegex(token));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int[] findInvalidPushTokens() {
+        return PushClient.findInvalidPushTokens(tokenList);
+    }
+
+    // The previous implementation of isExponentPushToken, kept as a baseline
+    private static boolean _isExponentPushTokenRegex(String token) {
+        String prefixA = "ExponentPushToken[";
+        String prefixB = "ExpoPushToken[";
+        String postfix = "]";
+        String regex = "[a-zA-Z0-9]{8}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{12}";
+
+        if (token.matches(regex)) return true;
+        if (!token.endsWith(postfix)) return false;
+        return token.startsWith(prefixA) || token.startsWith(prefixB);
+    }
+}
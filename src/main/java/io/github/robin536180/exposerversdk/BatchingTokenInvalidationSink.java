@@ -0,0 +1,149 @@
+package io.github.robin536180.exposerversdk;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenInvalidationSink} that collects tokens and hands them to a delegate in deduplicated
+ * batches, from a background thread.
+ * <p>
+ * A batch is flushed as soon as it holds {@code maxBatchSize} tokens, and at the latest
+ * {@code maxDelayMillis} after its first token arrived. If the delegate throws, the batch is kept and
+ * retried after {@code maxDelayMillis}, doubling the delay with every further failure up to
+ * {@link #MAX_BACKOFF_FACTOR} times; failures are counted in {@link #getFailureCount()}. {@link #close()}
+ * throws the delegate's exception if the last flush fails, leaving the tokens in {@link #pendingCount()}.
+ */
+public class BatchingTokenInvalidationSink implements TokenInvalidationSink, Closeable {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+    public static final int MAX_BACKOFF_FACTOR = 64;
+
+    private final TokenInvalidationSink delegate;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final ScheduledThreadPoolExecutor executor;
+
+    private Set<String> batch = new LinkedHashSet<>();
+    private boolean flushScheduled = false;
+    private int consecutiveFailures = 0;
+    private long failureCount = 0;
+    private RuntimeException lastFailure = null;
+
+    public BatchingTokenInvalidationSink(TokenInvalidationSink delegate) {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public BatchingTokenInvalidationSink(TokenInvalidationSink delegate, int maxBatchSize, long maxDelayMillis) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "expo-token-invalidation");
+            t.setDaemon(true);
+            return t;
+        });
+        // close() flushes whatever is left, so pending delayed flushes need not hold up shutdown.
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Override
+    public void invalidate(Collection<String> tokens) {
+        synchronized (this) {
+            batch.addAll(tokens);
+            if (executor.isShutdown()) return;
+            // While the delegate is failing, full batches wait for the scheduled retry.
+            if (batch.size() >= maxBatchSize && consecutiveFailures == 0) {
+                executor.execute(this::flush);
+            } else if (!flushScheduled && !batch.isEmpty()) {
+                flushScheduled = true;
+                executor.schedule(this::flush, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Hands every collected token to the delegate, in batches of at most {@code maxBatchSize}.
+     */
+    public void flush() {
+        _flush();
+    }
+
+    private RuntimeException _flush() {
+        Set<String> tokens;
+        synchronized (this) {
+            tokens = batch;
+            batch = new LinkedHashSet<>();
+            flushScheduled = false;
+        }
+        if (tokens.isEmpty()) return null;
+
+        List<String> remaining = new ArrayList<>(tokens);
+        try {
+            while (!remaining.isEmpty()) {
+                List<String> part = remaining.subList(0, Math.min(maxBatchSize, remaining.size()));
+                delegate.invalidate(new ArrayList<>(part));
+                part.clear();
+            }
+        } catch (RuntimeException e) {
+            _onFailure(remaining, e);
+            return e;
+        }
+        synchronized (this) {
+            consecutiveFailures = 0;
+        }
+        return null;
+    }
+
+    private synchronized void _onFailure(List<String> remaining, RuntimeException e) {
+        remaining.addAll(batch);
+        batch = new LinkedHashSet<>(remaining);
+        failureCount++;
+        lastFailure = e;
+        long factor = Math.min(1L << Math.min(consecutiveFailures, 30), MAX_BACKOFF_FACTOR);
+        consecutiveFailures++;
+        if (executor.isShutdown()) return;
+        flushScheduled = true;
+        executor.schedule(this::flush, maxDelayMillis * factor, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized int pendingCount() {
+        return batch.size();
+    }
+
+    /**
+     * @return how often the delegate has thrown since this sink was created
+     */
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return the exception the delegate threw last, or {@code null}
+     */
+    public synchronized RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Flushes whatever is left.
+     *
+     * @throws RuntimeException the delegate's exception if that last flush fails
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        RuntimeException failure = _flush();
+        if (failure != null) throw failure;
+    }
+}
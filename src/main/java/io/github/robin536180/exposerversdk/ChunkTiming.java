@@ -0,0 +1,56 @@
+package io.github.robin536180.exposerversdk;
+
+/**
+ * Where the time of one push request went, in nanoseconds per {@link Phase}.
+ * <p>
+ * Pass one to {@link PushClientCustomData#sendPushNotificationsAsync(java.util.List, ChunkTiming)}; it is filled in
+ * by the time the returned future completes. Phases measured by the resolver stay 0 unless the
+ * resolver supports timing, as {@link io.github.robin536180.exposerversdk.helpers.DefaultPushServerResolver}
+ * does.
+ */
+public class ChunkTiming {
+    public enum Phase {
+        /** A whole {@link PushClientCustomData#chunkPushNotifications(java.util.List)} call; only reported to metrics. */
+        CHUNKING,
+        /** Writing the messages as JSON. */
+        SERIALIZATION,
+        /** Waiting for a resolver thread. */
+        QUEUE_WAIT,
+        /** Opening the connection, including the TLS handshake. */
+        CONNECT,
+        /** Sending the request until the response headers arrive. */
+        SERVER,
+        /** Reading the response body. */
+        RESPONSE,
+        /** Turning the response into tickets or receipts. */
+        PARSING
+    }
+
+    private final long[] nanos = new long[Phase.values().length];
+
+    public long get(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public void set(Phase phase, long value) {
+        nanos[phase.ordinal()] = value;
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (long value : nanos) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ChunkTiming{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) sb.append(", ");
+            sb.append(phase).append('=').append(nanos[phase.ordinal()] / 1000).append("us");
+        }
+        return sb.append('}').toString();
+    }
+}
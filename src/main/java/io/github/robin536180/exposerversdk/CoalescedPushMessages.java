@@ -0,0 +1,144 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of {@link PushClientCustomData#coalescePushNotifications(List)}: messages with equal
+ * {@link ExpoPushMessageCustomData#contentKey()} merged into multi-recipient messages, plus the way back to
+ * the messages they came from. Messages without a content key are kept as they are.
+ */
+public class CoalescedPushMessages<TPushMessage extends ExpoPushMessageCustomData<?>> {
+    private final List<TPushMessage> originals;
+    private final List<TPushMessage> messages = new ArrayList<>();
+    private final Map<Object, Integer> mergedIndex = new LinkedHashMap<>();
+    // Messages without a content key, by their base content, to find them again from chunked copies.
+    private final Map<ExpoPushMessageContentKey, List<Integer>> unmergedIndex = new HashMap<>();
+    private final List<int[]> origins = new ArrayList<>();
+    // Per merged message, the position of the original message of each recipient; first one wins.
+    private final List<Map<String, Integer>> recipientOrigins = new ArrayList<>();
+
+    CoalescedPushMessages(List<TPushMessage> originals) {
+        this.originals = originals;
+
+        Map<TPushMessage, Integer> byInstance = new IdentityHashMap<>();
+        List<int[]> building = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < originals.size(); i++) {
+            TPushMessage original = originals.get(i);
+            Integer index = byInstance.get(original);
+            if (index == null) {
+                Object key = original.contentKey();
+                if (key != null) {
+                    index = mergedIndex.computeIfAbsent(key, k -> _addMerged(original, building, sizes));
+                } else {
+                    index = _addMerged(original, building, sizes);
+                    unmergedIndex.computeIfAbsent(new ExpoPushMessageContentKey(original), k -> new ArrayList<>()).add(index);
+                }
+                byInstance.put(original, index);
+            }
+
+            TPushMessage merged = messages.get(index);
+            // The merged message expires with the oldest message it stands for.
+            Long enqueuedAt = original.getEnqueuedAt();
+            if (enqueuedAt != null && (merged.getEnqueuedAt() == null || enqueuedAt < merged.getEnqueuedAt())) {
+                merged.setEnqueuedAt(enqueuedAt);
+            }
+            List<String> to = merged.getTo();
+            Map<String, Integer> byRecipient = recipientOrigins.get(index);
+            int[] from = building.get(index);
+            int size = sizes.get(index);
+            for (String recipient : original.getTo()) {
+                to.add(recipient);
+                byRecipient.putIfAbsent(recipient, i);
+                if (size == from.length) {
+                    from = Arrays.copyOf(from, from.length * 2);
+                    building.set(index, from);
+                }
+                from[size++] = i;
+            }
+            sizes.set(index, size);
+        }
+
+        for (int i = 0; i < messages.size(); i++) {
+            origins.add(Arrays.copyOf(building.get(i), sizes.get(i)));
+        }
+    }
+
+    private int _addMerged(TPushMessage original, List<int[]> building, List<Integer> sizes) {
+        TPushMessage merged = PushClientCustomData._copy(original);
+        merged.setTo(new ArrayList<>());
+        messages.add(merged);
+        recipientOrigins.add(new HashMap<>());
+        building.add(new int[4]);
+        sizes.add(0);
+        return messages.size() - 1;
+    }
+
+    /**
+     * @return the merged messages, in order of first appearance; pass them to
+     * {@link PushClientCustomData#chunkPushNotifications(List)}
+     */
+    public List<TPushMessage> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return for each recipient of merged message {@code index}, the position of the original message
+     * it came from
+     */
+    public int[] getOrigins(int index) {
+        return origins.get(index);
+    }
+
+    /**
+     * @return the original message that put {@code recipient} into a merged message with the content of
+     * {@code sent}, which may be one of {@link #getMessages()} or a chunked copy of it; {@code null} if
+     * there is none. For messages without a content key that only differ in fields added by a subclass,
+     * the first one sent to {@code recipient} is returned.
+     */
+    public TPushMessage getOriginalMessage(TPushMessage sent, String recipient) {
+        return _originalMessage(_mergedIndexes(sent), recipient);
+    }
+
+    // Merged messages a sent message or chunked copy may come from; looked up once per sent message.
+    private List<Integer> _mergedIndexes(TPushMessage sent) {
+        Object key = sent.contentKey();
+        if (key != null) {
+            Integer index = mergedIndex.get(key);
+            return index == null ? Collections.emptyList() : Collections.singletonList(index);
+        }
+        return unmergedIndex.getOrDefault(new ExpoPushMessageContentKey(sent), Collections.emptyList());
+    }
+
+    private TPushMessage _originalMessage(List<Integer> indexes, String recipient) {
+        for (int index : indexes) {
+            Integer origin = recipientOrigins.get(index).get(recipient);
+            if (origin != null) return originals.get(origin);
+        }
+        return null;
+    }
+
+    /**
+     * Pairs each ticket of a sent chunk with the original message of its recipient. Expo returns one
+     * ticket per recipient, in request order.
+     */
+    public List<ExpoPushMessageTicketPair<TPushMessage>> zipOriginalMessagesTickets(List<TPushMessage> sentChunk, List<ExpoPushTicket> tickets) {
+        List<ExpoPushMessageTicketPair<TPushMessage>> ret = new ArrayList<>();
+        int ticket = 0;
+        for (TPushMessage sent : sentChunk) {
+            List<Integer> indexes = _mergedIndexes(sent);
+            for (String recipient : sent.getTo()) {
+                if (ticket >= tickets.size()) return ret;
+                ret.add(new ExpoPushMessageTicketPair<>(_originalMessage(indexes, recipient), tickets.get(ticket++)));
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,174 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Send queue in which only the newest message per device and collapse key is kept.
+ * <p>
+ * Each recipient of an offered message is queued on its own. A message for a token and collapse key
+ * that is still waiting replaces the waiting one in place and keeps its position, so a burst of badge
+ * or status updates costs a single notification once the queue is drained, see
+ * {@link PushClientCustomData#sendCollapsedPushNotificationsAsync(CollapsingSendQueue)}, which puts
+ * messages back when the request fails in a way worth retrying.
+ * <p>
+ * At most {@code maxPending} distinct keys are held; recipients beyond that are rejected rather than
+ * queued. All methods are thread safe.
+ */
+public class CollapsingSendQueue<TPushMessage extends ExpoPushMessageCustomData<?>> {
+    public static final int DEFAULT_MAX_PENDING = 100000;
+
+    private final int maxPending;
+    private final ConcurrentHashMap<Key, TPushMessage> pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Key> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong collapsed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CollapsingSendQueue() {
+        this(DEFAULT_MAX_PENDING);
+    }
+
+    public CollapsingSendQueue(int maxPending) {
+        if (maxPending <= 0) throw new IllegalArgumentException("maxPending must be positive");
+        this.maxPending = maxPending;
+    }
+
+    public boolean offer(TPushMessage message) {
+        return offer(message, null);
+    }
+
+    /**
+     * Queues {@code message} for each of its recipients, replacing any waiting message for the same
+     * recipient and {@code collapseKey}.
+     *
+     * @return {@code false} if the queue was full for at least one recipient
+     */
+    public boolean offer(TPushMessage message, String collapseKey) {
+        boolean accepted = true;
+        Long enqueuedAt = message.getEnqueuedAt() != null ? message.getEnqueuedAt() : System.currentTimeMillis();
+        for (String recipient : message.getTo()) {
+            TPushMessage single = PushClientCustomData._copy(message);
+            single.setTo(Collections.singletonList(recipient));
+            single.setEnqueuedAt(enqueuedAt);
+
+            Key key = new Key(recipient, collapseKey);
+            boolean[] added = new boolean[1];
+            TPushMessage stored = pending.compute(key, (k, previous) -> {
+                if (previous != null) {
+                    collapsed.incrementAndGet();
+                    return single;
+                }
+                if (size.incrementAndGet() > maxPending) {
+                    size.decrementAndGet();
+                    return null;
+                }
+                added[0] = true;
+                return single;
+            });
+
+            if (added[0]) {
+                order.add(key);
+            } else if (stored == null) {
+                rejected.incrementAndGet();
+                accepted = false;
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Removes waiting messages, oldest key first, until {@code maxRecipients} messages are taken.
+     */
+    public List<TPushMessage> drain(long maxRecipients) {
+        return drain(maxRecipients, null);
+    }
+
+    // Adds the key of each drained message to keys, for requeue.
+    List<TPushMessage> drain(long maxRecipients, List<Key> keys) {
+        List<TPushMessage> drained = new ArrayList<>();
+        while (drained.size() < maxRecipients) {
+            Key key = order.poll();
+            if (key == null) break;
+            TPushMessage message = pending.remove(key);
+            if (message == null) continue;
+            size.decrementAndGet();
+            drained.add(message);
+            if (keys != null) keys.add(key);
+        }
+        return drained;
+    }
+
+    /**
+     * Puts drained messages back at the end of the queue. A message whose key got a newer message in the
+     * meantime stays replaced.
+     */
+    void requeue(List<Key> keys, List<TPushMessage> messages) {
+        for (int i = 0; i < keys.size(); i++) {
+            Key key = keys.get(i);
+            TPushMessage message = messages.get(i);
+            boolean[] added = new boolean[1];
+            TPushMessage stored = pending.compute(key, (k, newer) -> {
+                if (newer != null) return newer;
+                if (size.incrementAndGet() > maxPending) {
+                    size.decrementAndGet();
+                    return null;
+                }
+                added[0] = true;
+                return message;
+            });
+            if (added[0]) {
+                order.add(key);
+            } else if (stored == null) {
+                rejected.incrementAndGet();
+            }
+        }
+    }
+
+    public int pendingCount() {
+        return size.get();
+    }
+
+    /**
+     * @return how many messages were replaced by a newer one before being sent
+     */
+    public long getCollapsedCount() {
+        return collapsed.get();
+    }
+
+    /**
+     * @return how many recipients were turned away because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    static final class Key {
+        private final String token;
+        private final String collapseKey;
+
+        Key(String token, String collapseKey) {
+            this.token = token;
+            this.collapseKey = collapseKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return token.equals(key.token) && Objects.equals(collapseKey, key.collapseKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * token.hashCode() + Objects.hashCode(collapseKey);
+        }
+    }
+}
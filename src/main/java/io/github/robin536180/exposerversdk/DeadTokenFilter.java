@@ -0,0 +1,160 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.helpers.MappedRecordFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of push tokens that Expo reported as {@code DeviceNotRegistered}.
+ * <p>
+ * Lookups go through a Bloom filter first, so the common case of a live token is answered from a
+ * few bit probes without hashing into the exact set. Tokens the filter flags are confirmed against
+ * the exact set, so live tokens are never dropped by a false positive.
+ * <p>
+ * When created with a path, learned tokens are appended to a memory-mapped file and read back on
+ * the next start.
+ */
+public class DeadTokenFilter implements Closeable {
+    public static final int DEFAULT_EXPECTED_TOKENS = 1_000_000;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final byte RECORD_ADD = 1;
+    private static final byte RECORD_REMOVE = 2;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final Set<String> confirmed = ConcurrentHashMap.newKeySet();
+    private final MappedRecordFile file;
+
+    public DeadTokenFilter() {
+        this(DEFAULT_EXPECTED_TOKENS, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public DeadTokenFilter(int expectedTokens, double falsePositiveRate) {
+        this(expectedTokens, falsePositiveRate, null);
+    }
+
+    public DeadTokenFilter(Path path) throws IOException {
+        this(path, DEFAULT_EXPECTED_TOKENS, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public DeadTokenFilter(Path path, int expectedTokens, double falsePositiveRate) throws IOException {
+        this(expectedTokens, falsePositiveRate, new MappedRecordFile(path));
+        file.forEach((record, offset) -> {
+            byte type = record.get();
+            byte[] token = new byte[record.remaining()];
+            record.get(token);
+            String value = new String(token, StandardCharsets.UTF_8);
+            if (type == RECORD_ADD) {
+                _add(value);
+            } else if (type == RECORD_REMOVE) {
+                confirmed.remove(value);
+            }
+        });
+    }
+
+    private DeadTokenFilter(int expectedTokens, double falsePositiveRate, MappedRecordFile file) {
+        long optimalBits = (long) Math.ceil(-expectedTokens * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (optimalBits + 63) >>> 6);
+        bits = new AtomicLongArray(words);
+        bitCount = (long) words << 6;
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedTokens * Math.log(2)));
+        this.file = file;
+    }
+
+    public boolean isDead(String token) {
+        if (!mightBeDead(token)) return false;
+        return confirmed.contains(token);
+    }
+
+    /**
+     * @return {@code false} if {@code token} was certainly never added
+     */
+    public boolean mightBeDead(String token) {
+        long h1 = _hash(token, 0x9E3779B97F4A7C15L);
+        long h2 = _hash(token, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public void add(String token) {
+        if (!_add(token) || file == null) return;
+        _persist(RECORD_ADD, token);
+    }
+
+    /**
+     * Forgets {@code token}, e.g. after the device registered again. The Bloom filter keeps its bits, so
+     * the token only costs an exact lookup from now on.
+     */
+    public void remove(String token) {
+        if (!confirmed.remove(token) || file == null) return;
+        _persist(RECORD_REMOVE, token);
+    }
+
+    public int size() {
+        return confirmed.size();
+    }
+
+    public void flush() {
+        if (file != null) file.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) file.close();
+    }
+
+    private boolean _add(String token) {
+        if (!confirmed.add(token)) return false;
+        long h1 = _hash(token, 0x9E3779B97F4A7C15L);
+        long h2 = _hash(token, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+        return true;
+    }
+
+    private void _persist(byte type, String token) {
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + bytes.length);
+        record.put(type).put(bytes);
+        try {
+            file.append(record.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long _hash(String token, long seed) {
+        long h = seed;
+        for (int i = 0; i < token.length(); i++) {
+            h = (h ^ token.charAt(i)) * 0x100000001B3L;
+        }
+        // Finalizer from MurmurHash3 to spread the FNV state over all bits.
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.List;
+
+/**
+ * Takes messages the client held back for now, such as recipients over their {@link DeviceThrottle}
+ * limit. {@link ScheduledPushSender} is one implementation.
+ */
+public interface DeferredMessageSink<TPushMessage> {
+    public void defer(TPushMessage message, long notBeforeMillis);
+
+    /**
+     * Defers several messages at once, so implementations that persist can write them together.
+     */
+    default void deferAll(List<TPushMessage> messages, long notBeforeMillis) {
+        for (TPushMessage message : messages) {
+            defer(message, notBeforeMillis);
+        }
+    }
+}
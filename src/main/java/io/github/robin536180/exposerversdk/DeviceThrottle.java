@@ -0,0 +1,172 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how many notifications a single push token receives per time window.
+ * <p>
+ * Counts use a sliding window approximated from two fixed windows: the count of the previous window,
+ * weighted by how much of it still overlaps the sliding window, plus the count of the current one.
+ * Per token, a 64 bit fingerprint and a packed {@code long} of window and counts are kept in a fixed
+ * open-addressing table split into independent stripes, so tracking a token allocates nothing and
+ * updates are a single compare-and-set. Slots of tokens that have not been seen for two windows are
+ * reused by new tokens.
+ * <p>
+ * Counting is approximate under races, and a token that finds no free slot within a few probes is not
+ * limited at all; see {@link #getUntrackedCount()}.
+ */
+public class DeviceThrottle {
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /**
+     * What the client does with recipients over the limit, see
+     * {@link PushClientCustomData#deviceThrottle}.
+     */
+    public enum Policy {
+        /** Leave them out of the request; their tickets have error status. */
+        DROP,
+        /**
+         * Hand them to {@link PushClientCustomData#deferredMessageSink}, which must be set, for a later
+         * attempt; their tickets have error status too.
+         */
+        DEFER
+    }
+
+    private static final int STRIPES = 64;
+    private static final int MAX_PROBES = 16;
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final int maxPerWindow;
+    private final long windowMillis;
+    private final Policy policy;
+    // Per stripe, slot i occupies [2 * i] (fingerprint, 0 when free) and [2 * i + 1] (state).
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final int slotMask;
+    private final LongAdder untracked = new LongAdder();
+
+    public DeviceThrottle(int maxPerWindow, long windowMillis) {
+        this(maxPerWindow, windowMillis, Policy.DROP, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of tokens that can be tracked at once, rounded up to a power of two
+     */
+    public DeviceThrottle(int maxPerWindow, long windowMillis, Policy policy, int capacity) {
+        if (maxPerWindow <= 0 || maxPerWindow >= MAX_COUNT) {
+            throw new IllegalArgumentException("maxPerWindow must be between 1 and " + (MAX_COUNT - 1));
+        }
+        if (windowMillis <= 0) throw new IllegalArgumentException("windowMillis must be positive");
+        this.maxPerWindow = maxPerWindow;
+        this.windowMillis = windowMillis;
+        this.policy = policy;
+        int slots = Math.max(MAX_PROBES, Integer.highestOneBit(Math.max(1, capacity / STRIPES - 1)) << 1);
+        slotMask = slots - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(slots * 2);
+        }
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Counts one notification for {@code token}, unless it is over the limit.
+     *
+     * @return {@code false} if the token has already had {@code maxPerWindow} notifications in the last
+     * {@code windowMillis}
+     */
+    public boolean tryAcquire(String token, long nowMillis) {
+        long fingerprint = _fingerprint(token);
+        long window = nowMillis / windowMillis;
+        AtomicLongArray stripe = stripes[(int) (fingerprint >>> 58)];
+        int slot = _findSlot(stripe, fingerprint, window);
+        if (slot < 0) {
+            untracked.increment();
+            return true;
+        }
+
+        int index = 2 * slot + 1;
+        long elapsed = nowMillis - window * windowMillis;
+        while (true) {
+            long state = stripe.get(index);
+            long stateWindow = state >>> 32;
+            int current = (int) (state >>> 16) & MAX_COUNT;
+            int previous = (int) state & MAX_COUNT;
+            if (stateWindow != (window & 0xFFFFFFFFL)) {
+                previous = stateWindow == ((window - 1) & 0xFFFFFFFFL) ? current : 0;
+                current = 0;
+            }
+
+            double estimate = previous * (double) (windowMillis - elapsed) / windowMillis + current;
+            if (estimate >= maxPerWindow) return false;
+
+            long next = ((window & 0xFFFFFFFFL) << 32) | ((long) Math.min(current + 1, MAX_COUNT) << 16) | previous;
+            if (stripe.compareAndSet(index, state, next)) return true;
+        }
+    }
+
+    /**
+     * @return the earliest time at which a token refused at {@code nowMillis} is worth trying again
+     */
+    public long retryAt(long nowMillis) {
+        return (nowMillis / windowMillis + 1) * windowMillis;
+    }
+
+    /**
+     * @return how often a token could not be tracked because its part of the table was full
+     */
+    public long getUntrackedCount() {
+        return untracked.sum();
+    }
+
+    // Returns the slot already holding the fingerprint, else claims the first free or idle one.
+    private int _findSlot(AtomicLongArray stripe, long fingerprint, long window) {
+        int start = (int) fingerprint & slotMask;
+        while (true) {
+            int reusable = -1;
+            long reusableKey = 0;
+            for (int probe = 0; probe < MAX_PROBES; probe++) {
+                int slot = (start + probe) & slotMask;
+                long key = stripe.get(2 * slot);
+                if (key == fingerprint) return slot;
+                if (key == 0) {
+                    if (reusable < 0) {
+                        reusable = slot;
+                        reusableKey = 0;
+                    }
+                    break;
+                }
+                if (reusable < 0 && _isIdle(stripe.get(2 * slot + 1), window)) {
+                    reusable = slot;
+                    reusableKey = key;
+                }
+            }
+            if (reusable < 0) return -1;
+            if (stripe.compareAndSet(2 * reusable, reusableKey, fingerprint)) {
+                // The previous owner's counts have expired anyway; start from a clean state.
+                stripe.set(2 * reusable + 1, 0);
+                return reusable;
+            }
+        }
+    }
+
+    private static boolean _isIdle(long state, long window) {
+        long stateWindow = state >>> 32;
+        return stateWindow != (window & 0xFFFFFFFFL) && stateWindow != ((window - 1) & 0xFFFFFFFFL);
+    }
+
+    private static long _fingerprint(String token) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < token.length(); i++) {
+            h = (h ^ token.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.robin536180.exposerversdk;
+
+/**
+ * Told about every message the client drops instead of sending because it had already expired, see
+ * {@link ExpoPushMessageCustomData#isExpired(long)}.
+ */
+public interface ExpiredMessageListener<TPushMessage> {
+    public void onExpired(TPushMessage message);
+}
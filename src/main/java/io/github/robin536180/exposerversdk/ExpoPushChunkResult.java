@@ -0,0 +1,67 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of sending one chunk, with errors as data instead of exceptions, see
+ * {@link PushClientCustomData#sendPushNotificationsResultAsync(List)}.
+ * <p>
+ * Expo can answer with tickets and request errors at the same time, so both may be present. A failure
+ * means there is no usable answer: the request did not get through, or the response could not be read.
+ */
+public class ExpoPushChunkResult<TPushMessage extends ExpoPushMessageCustomData<?>> {
+    private final List<TPushMessage> messages;
+    private final List<ExpoPushTicket> tickets;
+    private final List<ExpoPushError> errors;
+    private final Throwable failure;
+
+    ExpoPushChunkResult(List<TPushMessage> messages, List<ExpoPushTicket> tickets, List<ExpoPushError> errors, Throwable failure) {
+        this.messages = messages;
+        this.tickets = tickets;
+        this.errors = errors;
+        this.failure = failure;
+    }
+
+    static <TPushMessage extends ExpoPushMessageCustomData<?>> ExpoPushChunkResult<TPushMessage> failed(List<TPushMessage> messages, Throwable failure) {
+        return new ExpoPushChunkResult<>(messages, Collections.emptyList(), Collections.emptyList(), failure);
+    }
+
+    public List<TPushMessage> getMessages() {
+        return messages;
+    }
+
+    /**
+     * @return one ticket per recipient, in request order; empty on failure
+     */
+    public List<ExpoPushTicket> getTickets() {
+        return tickets;
+    }
+
+    /**
+     * @return errors about the request as a whole, e.g. {@code TOO_MANY_REQUESTS}
+     */
+    public List<ExpoPushError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the transport failure, a {@link PushNotificationException} if the response could not be read, or
+     * {@code null}
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return {@code true} if there are tickets for the chunk and no errors; individual tickets can still
+     * have error status
+     */
+    public boolean isSuccess() {
+        return failure == null && errors.isEmpty();
+    }
+
+    public List<ExpoPushMessageTicketPair<TPushMessage>> getMessageTicketPairs() {
+        return PushDispatcher._zipRecipientsTickets(messages, tickets);
+    }
+}
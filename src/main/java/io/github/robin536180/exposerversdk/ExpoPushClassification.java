@@ -0,0 +1,130 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.Status;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * Tickets or receipts grouped by {@link Status} and by error, built in a single pass.
+ * <p>
+ * Buckets are stored as index arrays into the classified list. The {@code List} views returned by
+ * {@link #get(Status)} and {@link #get(Enum)} read through those indices instead of copying.
+ *
+ * @param <T> the classified item, e.g. {@link ExpoPushMessageTicketPair} or {@link ExpoPushReceipt}
+ * @param <E> the error enum, {@link io.github.robin536180.exposerversdk.enums.TicketError} or
+ *            {@link io.github.robin536180.exposerversdk.enums.ReceiptError}
+ */
+public class ExpoPushClassification<T, E extends Enum<E>> {
+    private static final int[] EMPTY = new int[0];
+
+    private final List<T> items;
+    private final Map<Status, int[]> byStatus = new EnumMap<>(Status.class);
+    private final Map<E, int[]> byError;
+
+    private ExpoPushClassification(List<T> items, Class<E> errorType) {
+        this.items = items;
+        this.byError = new EnumMap<>(errorType);
+    }
+
+    public static <T, E extends Enum<E>> ExpoPushClassification<T, E> classify(
+            List<T> items, Class<E> errorType, Function<T, Status> status, Function<T, E> error) {
+        List<T> source = items instanceof RandomAccess ? items : new ArrayList<>(items);
+        ExpoPushClassification<T, E> result = new ExpoPushClassification<>(source, errorType);
+
+        Status[] statuses = Status.values();
+        E[] errors = errorType.getEnumConstants();
+        int[][] statusIndices = new int[statuses.length][];
+        int[] statusCounts = new int[statuses.length];
+        int[][] errorIndices = new int[errors.length][];
+        int[] errorCounts = new int[errors.length];
+
+        for (int i = 0; i < source.size(); i++) {
+            T item = source.get(i);
+            Status s = status.apply(item);
+            if (s != null) _add(statusIndices, statusCounts, s.ordinal(), i);
+            E e = error.apply(item);
+            if (e != null) _add(errorIndices, errorCounts, e.ordinal(), i);
+        }
+
+        for (Status s : statuses) {
+            int[] indices = statusIndices[s.ordinal()];
+            result.byStatus.put(s, indices == null ? EMPTY : Arrays.copyOf(indices, statusCounts[s.ordinal()]));
+        }
+        for (E e : errors) {
+            int[] indices = errorIndices[e.ordinal()];
+            result.byError.put(e, indices == null ? EMPTY : Arrays.copyOf(indices, errorCounts[e.ordinal()]));
+        }
+        return result;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public int count(Status status) {
+        return byStatus.get(status).length;
+    }
+
+    public int count(E error) {
+        return byError.get(error).length;
+    }
+
+    /**
+     * @return positions in the classified list; the array is shared, do not modify it
+     */
+    public int[] indices(Status status) {
+        return byStatus.get(status);
+    }
+
+    /**
+     * @return positions in the classified list; the array is shared, do not modify it
+     */
+    public int[] indices(E error) {
+        return byError.get(error);
+    }
+
+    public List<T> get(Status status) {
+        return new IndexedView<>(items, byStatus.get(status));
+    }
+
+    public List<T> get(E error) {
+        return new IndexedView<>(items, byError.get(error));
+    }
+
+    private static void _add(int[][] buckets, int[] counts, int bucket, int index) {
+        int[] indices = buckets[bucket];
+        if (indices == null) {
+            indices = buckets[bucket] = new int[16];
+        } else if (counts[bucket] == indices.length) {
+            indices = buckets[bucket] = Arrays.copyOf(indices, indices.length * 2);
+        }
+        indices[counts[bucket]++] = index;
+    }
+
+    private static class IndexedView<T> extends AbstractList<T> implements RandomAccess {
+        private final List<T> items;
+        private final int[] indices;
+
+        IndexedView(List<T> items, int[] indices) {
+            this.items = items;
+            this.indices = indices;
+        }
+
+        @Override
+        public T get(int index) {
+            return items.get(indices[index]);
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+    }
+}
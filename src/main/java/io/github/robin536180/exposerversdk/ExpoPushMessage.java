@@ -29,6 +29,11 @@ public class ExpoPushMessage extends ExpoPushMessageCustomData<Object> {
         super(_to);
     }
 
+    @Override
+    protected Object contentKey() {
+        return getClass() == ExpoPushMessage.class ? baseContentKey() : null;
+    }
+
     @Override
     public Object clone() {
         return new ExpoPushMessage(this);
@@ -0,0 +1,44 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.Objects;
+
+/**
+ * Compares two messages by the fields of {@link ExpoPushMessageCustomData} except their recipients, and
+ * their class. Fields added by subclasses are not inspected, see {@link ExpoPushMessageCustomData#contentKey()}.
+ */
+final class ExpoPushMessageContentKey {
+    private final ExpoPushMessageCustomData<?> message;
+    private final int hash;
+
+    ExpoPushMessageContentKey(ExpoPushMessageCustomData<?> message) {
+        this.message = message;
+        this.hash = Objects.hash(message.getClass(), message.getData(), message.getTitle(), message.getSubtitle(),
+                message.getBody(), message.getSound(), message.getTtl(), message.getExpiration(),
+                message.getPriority(), message.getBadge(), message.getChannelId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ExpoPushMessageContentKey)) return false;
+        ExpoPushMessageContentKey that = (ExpoPushMessageContentKey) o;
+        ExpoPushMessageCustomData<?> other = that.message;
+        return hash == that.hash &&
+                message.getClass() == other.getClass() &&
+                Objects.equals(message.getTtl(), other.getTtl()) &&
+                Objects.equals(message.getExpiration(), other.getExpiration()) &&
+                Objects.equals(message.getBadge(), other.getBadge()) &&
+                Objects.equals(message.getTitle(), other.getTitle()) &&
+                Objects.equals(message.getSubtitle(), other.getSubtitle()) &&
+                Objects.equals(message.getBody(), other.getBody()) &&
+                Objects.equals(message.getSound(), other.getSound()) &&
+                Objects.equals(message.getPriority(), other.getPriority()) &&
+                Objects.equals(message.getChannelId(), other.getChannelId()) &&
+                Objects.equals(message.getData(), other.getData());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.robin536180.exposerversdk;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import io.github.robin536180.exposerversdk.enums.Priority;
@@ -21,6 +22,9 @@ public class ExpoPushMessageCustomData<T> {
     private Priority priority = null;
     private Long badge = null;
     private String channelId = null;
+    // Not sent to Expo; the time ttl counts from when deciding whether the message is stale.
+    @JsonIgnore
+    private Long enqueuedAt = null;
 
     public ExpoPushMessageCustomData() {
         to = new ArrayList<>();
@@ -38,6 +42,7 @@ public class ExpoPushMessageCustomData<T> {
         priority = _message.priority;
         badge = _message.badge;
         channelId = _message.channelId;
+        enqueuedAt = _message.enqueuedAt;
     }
 
     public ExpoPushMessageCustomData(List<String> _to, ExpoPushMessageCustomData<T> _message) {
@@ -52,6 +57,7 @@ public class ExpoPushMessageCustomData<T> {
         priority = _message.priority;
         badge = _message.badge;
         channelId = _message.channelId;
+        enqueuedAt = _message.enqueuedAt;
     }
 
     @Override
@@ -155,6 +161,47 @@ public class ExpoPushMessageCustomData<T> {
         this.channelId = channelId;
     }
 
+    @JsonIgnore
+    public Long getEnqueuedAt() {
+        return enqueuedAt;
+    }
+
+    /**
+     * @param enqueuedAt milliseconds since the epoch at which the message was queued for sending
+     */
+    @JsonIgnore
+    public void setEnqueuedAt(Long enqueuedAt) {
+        this.enqueuedAt = enqueuedAt;
+    }
+
+    /**
+     * @return whether {@code expiration} has passed, or a positive {@code ttl} has run out since
+     * {@code enqueuedAt}. A ttl of 0 asks Expo for one delivery attempt only, so it never expires here.
+     */
+    public boolean isExpired(long nowMillis) {
+        if (expiration != null && expiration * 1000 <= nowMillis) return true;
+        return ttl != null && ttl > 0 && enqueuedAt != null && enqueuedAt + ttl * 1000 < nowMillis;
+    }
+
+    /**
+     * Used to deduplicate recipients and to coalesce messages: messages with equal content keys are sent
+     * as the same notification, whatever their recipients.
+     * <p>
+     * Returns {@code null}, meaning never merge this message with another, for subclasses, since their
+     * added fields would not be compared. A subclass opts in by overriding this with a key that includes
+     * its fields, e.g. {@code Arrays.asList(baseContentKey(), category)}.
+     */
+    protected Object contentKey() {
+        return getClass() == ExpoPushMessageCustomData.class ? baseContentKey() : null;
+    }
+
+    /**
+     * @return a key comparing the fields of this class except the recipients, and the message class
+     */
+    protected final Object baseContentKey() {
+        return new ExpoPushMessageContentKey(this);
+    }
+
     public void setPriority(Priority _priority) {
         priority = _priority;
     }
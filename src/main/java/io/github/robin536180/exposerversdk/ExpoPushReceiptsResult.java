@@ -0,0 +1,53 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one receipts request, with errors as data instead of exceptions, see
+ * {@link PushClientCustomData#getPushNotificationReceiptsResultAsync(List)}.
+ */
+public class ExpoPushReceiptsResult {
+    private final List<String> ids;
+    private final List<ExpoPushReceipt> receipts;
+    private final List<ExpoPushError> errors;
+    private final Throwable failure;
+
+    ExpoPushReceiptsResult(List<String> ids, List<ExpoPushReceipt> receipts, List<ExpoPushError> errors, Throwable failure) {
+        this.ids = ids;
+        this.receipts = receipts;
+        this.errors = errors;
+        this.failure = failure;
+    }
+
+    static ExpoPushReceiptsResult failed(List<String> ids, Throwable failure) {
+        return new ExpoPushReceiptsResult(ids, Collections.emptyList(), Collections.emptyList(), failure);
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * @return the receipts that are ready; ids without a receipt yet are left out
+     */
+    public List<ExpoPushReceipt> getReceipts() {
+        return receipts;
+    }
+
+    public List<ExpoPushError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the transport failure, a {@link PushNotificationReceiptsException} if the response could not be read, or
+     * {@code null}
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccess() {
+        return failure == null && errors.isEmpty();
+    }
+}
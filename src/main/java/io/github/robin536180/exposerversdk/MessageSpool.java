@@ -0,0 +1,301 @@
+package io.github.robin536180.exposerversdk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.robin536180.exposerversdk.helpers.MappedRecordFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Disk-backed write-ahead spool for outbound push messages.
+ * <p>
+ * Messages are appended to memory-mapped segment files before they are sent and acknowledged once
+ * their tickets arrive, see {@link PushClientCustomData#sendSpooledPushNotificationsAsync(MessageSpool)}.
+ * Anything that was appended but never acknowledged is pending again when the spool is reopened, so
+ * delivery is at-least-once. Only an index of the pending messages is kept on the heap, which lets the
+ * spool absorb bursts the sender cannot keep up with.
+ * <p>
+ * Concurrent appends share a single {@code force()} per group: whichever thread commits first makes
+ * every record written so far durable, and the others return without touching the disk.
+ */
+public class MessageSpool<TPushMessage extends ExpoPushMessageCustomData<?>> implements Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final byte RECORD_MESSAGE = 1;
+    private static final byte RECORD_ACK = 2;
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final Class<TPushMessage> messageClass;
+    private final int segmentSize;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final TreeMap<Long, Slot> pending = new TreeMap<>();
+    private final Map<Long, Slot> inFlight = new HashMap<>();
+    private final Set<Segment> dirty = new HashSet<>();
+    private long nextSeq = 1;
+    private long nextSegmentId = 1;
+    private long writeGeneration = 0;
+
+    private final Object commitLock = new Object();
+    private long committedGeneration = 0;
+
+    public MessageSpool(Path directory, Class<TPushMessage> messageClass) throws IOException {
+        this(directory, messageClass, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MessageSpool(Path directory, Class<TPushMessage> messageClass, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.messageClass = messageClass;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        Collections.sort(paths);
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            long segmentId = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            nextSegmentId = Math.max(nextSegmentId, segmentId + 1);
+            Segment segment = new Segment(new MappedRecordFile(path, Math.min(segmentSize, MappedRecordFile.DEFAULT_INITIAL_CAPACITY)));
+            segments.addLast(segment);
+            segment.file.forEach((record, offset) -> _replay(segment, record, offset));
+        }
+        _deleteAcknowledgedSegments();
+    }
+
+    public long append(TPushMessage message) throws IOException {
+        return appendAll(Collections.singletonList(message)).get(0);
+    }
+
+    /**
+     * Appends {@code messages} and returns once they are durable on disk.
+     *
+     * @return the sequence number assigned to each message
+     */
+    public List<Long> appendAll(List<? extends TPushMessage> messages) throws IOException {
+        List<byte[]> bodies = new ArrayList<>(messages.size());
+        for (TPushMessage message : messages) {
+            bodies.add(mapper.writeValueAsBytes(message));
+        }
+
+        long now = System.currentTimeMillis();
+        List<Long> seqs = new ArrayList<>(messages.size());
+        long generation;
+        synchronized (this) {
+            for (int i = 0; i < bodies.size(); i++) {
+                long seq = nextSeq++;
+                int recipients = messages.get(i).getTo().size();
+                Long queuedAt = messages.get(i).getEnqueuedAt();
+                long enqueuedAt = queuedAt != null ? queuedAt : now;
+                ByteBuffer record = ByteBuffer.allocate(1 + 8 + 8 + 4 + bodies.get(i).length);
+                record.put(RECORD_MESSAGE).putLong(seq).putLong(enqueuedAt).putInt(recipients).put(bodies.get(i));
+
+                Segment segment = _activeSegment();
+                int offset = segment.file.append(record.array());
+                segment.unacknowledged++;
+                dirty.add(segment);
+                pending.put(seq, new Slot(seq, segment, offset, recipients, enqueuedAt));
+                seqs.add(seq);
+            }
+            generation = ++writeGeneration;
+        }
+        _commit(generation);
+        return seqs;
+    }
+
+    /**
+     * Claims pending messages, oldest first, until {@code maxRecipients} would be exceeded. At least one
+     * message is returned whenever any are pending. Claimed messages must be passed to either
+     * {@link #acknowledge(Collection)} or {@link #release(Collection)}.
+     */
+    public List<Entry<TPushMessage>> poll(long maxRecipients) throws IOException {
+        List<Slot> claimed = new ArrayList<>();
+        List<ByteBuffer> records = new ArrayList<>();
+        synchronized (this) {
+            long recipients = 0;
+            while (!pending.isEmpty()) {
+                Slot slot = pending.firstEntry().getValue();
+                if (!claimed.isEmpty() && recipients + slot.recipients > maxRecipients) break;
+                pending.pollFirstEntry();
+                inFlight.put(slot.seq, slot);
+                claimed.add(slot);
+                records.add(slot.segment.file.read(slot.offset));
+                recipients += slot.recipients;
+            }
+        }
+
+        List<Entry<TPushMessage>> entries = new ArrayList<>(claimed.size());
+        for (int i = 0; i < claimed.size(); i++) {
+            ByteBuffer record = records.get(i);
+            record.position(1 + 8 + 8 + 4);
+            byte[] body = new byte[record.remaining()];
+            record.get(body);
+            Slot slot = claimed.get(i);
+            TPushMessage message = mapper.readValue(body, messageClass);
+            message.setEnqueuedAt(slot.enqueuedAt);
+            entries.add(new Entry<>(slot.seq, slot.enqueuedAt, message));
+        }
+        return entries;
+    }
+
+    public void acknowledge(Collection<Entry<TPushMessage>> entries) throws IOException {
+        synchronized (this) {
+            for (Entry<TPushMessage> entry : entries) {
+                Slot slot = inFlight.remove(entry.seq);
+                if (slot == null) continue;
+                ByteBuffer record = ByteBuffer.allocate(1 + 8);
+                record.put(RECORD_ACK).putLong(entry.seq);
+                Segment segment = _activeSegment();
+                segment.file.append(record.array());
+                dirty.add(segment);
+                slot.segment.unacknowledged--;
+            }
+            // Acknowledgements are made durable by the next commit; losing one only causes a resend.
+            _deleteAcknowledgedSegments();
+        }
+    }
+
+    public synchronized void release(Collection<Entry<TPushMessage>> entries) {
+        for (Entry<TPushMessage> entry : entries) {
+            Slot slot = inFlight.remove(entry.seq);
+            if (slot != null) pending.put(slot.seq, slot);
+        }
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    public synchronized int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (commitLock) {
+            synchronized (this) {
+                for (Segment segment : segments) {
+                    segment.file.close();
+                }
+                segments.clear();
+                dirty.clear();
+            }
+        }
+    }
+
+    private void _commit(long generation) {
+        synchronized (commitLock) {
+            if (committedGeneration >= generation) return;
+            List<Segment> toForce;
+            long target;
+            synchronized (this) {
+                toForce = new ArrayList<>(dirty);
+                dirty.clear();
+                target = writeGeneration;
+            }
+            for (Segment segment : toForce) {
+                segment.file.force();
+            }
+            committedGeneration = target;
+        }
+    }
+
+    private void _replay(Segment segment, ByteBuffer record, int offset) {
+        byte type = record.get();
+        long seq = record.getLong();
+        if (type == RECORD_MESSAGE) {
+            long enqueuedAt = record.getLong();
+            int recipients = record.getInt();
+            pending.put(seq, new Slot(seq, segment, offset, recipients, enqueuedAt));
+            segment.unacknowledged++;
+            nextSeq = Math.max(nextSeq, seq + 1);
+        } else if (type == RECORD_ACK) {
+            Slot slot = pending.remove(seq);
+            if (slot != null) slot.segment.unacknowledged--;
+        }
+    }
+
+    private Segment _activeSegment() throws IOException {
+        Segment active = segments.peekLast();
+        if (active == null || active.file.size() >= segmentSize) {
+            Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX));
+            active = new Segment(new MappedRecordFile(path, Math.min(segmentSize, MappedRecordFile.DEFAULT_INITIAL_CAPACITY)));
+            segments.addLast(active);
+        }
+        return active;
+    }
+
+    private void _deleteAcknowledgedSegments() throws IOException {
+        // Segments only go in order: an acknowledgement always lives in the same or a later segment
+        // than its message, so deleting from the front never resurrects an acknowledged message.
+        while (segments.size() > 1 && segments.peekFirst().unacknowledged == 0) {
+            Segment segment = segments.pollFirst();
+            dirty.remove(segment);
+            segment.file.close();
+            Files.deleteIfExists(segment.file.getPath());
+        }
+    }
+
+    private static class Segment {
+        final MappedRecordFile file;
+        int unacknowledged = 0;
+
+        Segment(MappedRecordFile file) {
+            this.file = file;
+        }
+    }
+
+    private static class Slot {
+        final long seq;
+        final Segment segment;
+        final int offset;
+        final int recipients;
+        final long enqueuedAt;
+
+        Slot(long seq, Segment segment, int offset, int recipients, long enqueuedAt) {
+            this.seq = seq;
+            this.segment = segment;
+            this.offset = offset;
+            this.recipients = recipients;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    public static class Entry<TPushMessage> {
+        private final long seq;
+        private final long enqueuedAt;
+        private final TPushMessage message;
+
+        Entry(long seq, long enqueuedAt, TPushMessage message) {
+            this.seq = seq;
+            this.enqueuedAt = enqueuedAt;
+            this.message = message;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+
+        public TPushMessage getMessage() {
+            return message;
+        }
+    }
+}
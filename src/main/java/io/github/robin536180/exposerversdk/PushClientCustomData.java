@@ -3,27 +3,60 @@ package io.github.robin536180.exposerversdk;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.robin536180.exposerversdk.enums.ReceiptError;
 import io.github.robin536180.exposerversdk.enums.Status;
 import io.github.robin536180.exposerversdk.enums.TicketError;
 import io.github.robin536180.exposerversdk.helpers.DefaultPushServerResolver;
 import io.github.robin536180.exposerversdk.helpers.PushServerResolver;
+import io.github.robin536180.exposerversdk.metrics.PushMetrics;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class PushClientCustomData<TPushMessage extends ExpoPushMessageCustomData<?>> {
+    static final String EXPIRED_TICKET_MESSAGE = "Message expired before it was sent";
+    static final String THROTTLED_TICKET_MESSAGE = "Recipient is over its DeviceThrottle limit";
+    static final String DEFERRED_TICKET_MESSAGE = "Recipient is over its DeviceThrottle limit, deferred to the deferredMessageSink";
+
     public long PUSH_NOTIFICATION_CHUNK_LIMIT = 100;
     public long PUSH_NOTIFICATION_RECEIPT_CHUNK_LIMIT = 300;
+    public boolean DEDUPLICATE_RECIPIENTS = false;
+    public boolean DROP_EXPIRED_MESSAGES = false;
     public URL baseApiUrl = null;
     public PushServerResolver pushServerResolver = new DefaultPushServerResolver();
+    public PushMetrics pushMetrics = PushMetrics.NOOP;
+    public TicketJournal ticketJournal = null;
+    public DeadTokenFilter deadTokenFilter = null;
+    public TokenInvalidationSink tokenInvalidationSink = null;
+    public ExpiredMessageListener<TPushMessage> expiredMessageListener = null;
+    public DeviceThrottle deviceThrottle = null;
+    public DeferredMessageSink<TPushMessage> deferredMessageSink = null;
+    public SendBudget sendBudget = new SendBudget(10_000, 64 << 20);
+    public final AtomicLong duplicateRecipientsDropped = new AtomicLong();
+    public final AtomicLong expiredMessagesDropped = new AtomicLong();
+    public final AtomicLong throttledRecipientsDropped = new AtomicLong();
+    public final AtomicLong throttledRecipientsDeferred = new AtomicLong();
+    /**
+     * Exceptions thrown by {@link #ticketJournal}, {@link #deadTokenFilter} or {@link #tokenInvalidationSink}
+     * while handling a response. They are counted here and do not change the outcome of the request.
+     */
+    public final AtomicLong hookFailures = new AtomicLong();
 
     public PushClientCustomData() throws PushClientException {
         try {
@@ -42,52 +75,331 @@ public class PushClientCustomData<TPushMessage extends ExpoPushMessageCustomData
         return this;
     }
 
+    /**
+     * Sets {@link #pushMetrics}, and hands it to {@link #pushServerResolver} too if that is a
+     * {@link DefaultPushServerResolver}.
+     */
+    public PushClientCustomData<TPushMessage> setPushMetrics(PushMetrics _pushMetrics) {
+        pushMetrics = _pushMetrics;
+        if (pushServerResolver instanceof DefaultPushServerResolver) {
+            ((DefaultPushServerResolver) pushServerResolver).pushMetrics = _pushMetrics;
+        }
+        return this;
+    }
+
     public CompletableFuture<List<ExpoPushTicket>> sendPushNotificationsAsync(List<TPushMessage> messages) throws PushNotificationException {
-        CompletableFuture<List<ExpoPushTicket>> ret = null;
+        return sendPushNotificationsAsync(messages, null);
+    }
+
+    /**
+     * @param timing filled in with the time spent in each phase of the request by the time the returned
+     *               future completes; may be {@code null}
+     */
+    public CompletableFuture<List<ExpoPushTicket>> sendPushNotificationsAsync(List<TPushMessage> messages, ChunkTiming timing) throws PushNotificationException {
+        return _throwingTickets(_sendChunkAsync(messages, timing), messages);
+    }
+
+    private CompletableFuture<List<ExpoPushTicket>> _throwingTickets(CompletableFuture<ExpoPushChunkResult<TPushMessage>> request, List<TPushMessage> messages) {
+        return request.thenApply(result -> {
+            Throwable failure = result.getFailure();
+            if (failure instanceof CompletionException) throw (CompletionException) failure;
+            if (failure != null) throw new CompletionException(failure);
+            if (!result.getErrors().isEmpty()) {
+                throw new PushNotificationException(
+                        new PushNotificationErrorsException(result.getErrors(), result.getTickets()),
+                        messages
+                );
+            }
+            return result.getTickets();
+        });
+    }
+
+    public CompletableFuture<ExpoPushChunkResult<TPushMessage>> sendPushNotificationsResultAsync(List<TPushMessage> messages) {
+        return sendPushNotificationsResultAsync(messages, null);
+    }
+
+    /**
+     * Like {@link #sendPushNotificationsAsync(List, ChunkTiming)}, but the returned future always
+     * completes normally; request errors and failures are reported in the result.
+     */
+    public CompletableFuture<ExpoPushChunkResult<TPushMessage>> sendPushNotificationsResultAsync(List<TPushMessage> messages, ChunkTiming timing) {
+        try {
+            return _sendChunkAsync(messages, timing);
+        } catch (PushNotificationException e) {
+            return CompletableFuture.completedFuture(ExpoPushChunkResult.failed(messages, e.exception));
+        }
+    }
+
+    /**
+     * Sends one chunk, first waiting until {@link #sendBudget} has room for its recipients and request
+     * bytes; they are given back when the request completes. Producers calling this are slowed to the
+     * rate requests complete at, instead of piling up requests.
+     *
+     * @throws TimeoutException if the budget did not free up within {@code timeout}; nothing was sent
+     */
+    public CompletableFuture<List<ExpoPushTicket>> submitPushNotifications(List<TPushMessage> chunk, long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException, PushNotificationException {
+        long start = System.nanoTime();
+        String json;
         try {
-            ret = _postNotificationAsync(new URL(baseApiUrl + "/push/send"), messages)
-                    .thenApply((String jsonString) -> {
+            json = new ObjectMapper().writeValueAsString(chunk);
+        } catch (JsonProcessingException e) {
+            throw new PushNotificationException(e, chunk);
+        }
+        long serializationNanos = System.nanoTime() - start;
+
+        SendBudget budget = sendBudget;
+        ChunkSender<TPushMessage> send = sendable -> sendable == chunk
+                ? _sendChunkAsync(chunk, null, json, serializationNanos)
+                : _sendChunkAsync(sendable, null, null, 0);
+        if (budget == null) return _throwingTickets(_sendCheckedAsync(chunk, send), chunk);
+        int recipients = (int) _getActualMessagesCount(chunk);
+        int bytes = json.length();
+        if (!budget.tryAcquire(recipients, bytes, Math.max(0, unit.toNanos(timeout) - serializationNanos), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException("No room for " + recipients + " recipients and " + bytes + " bytes");
+        }
+        CompletableFuture<ExpoPushChunkResult<TPushMessage>> request;
+        try {
+            request = _sendCheckedAsync(chunk, send);
+        } catch (RuntimeException e) {
+            budget.release(recipients, bytes);
+            throw e;
+        }
+        return _throwingTickets(request.whenComplete((result, throwable) -> budget.release(recipients, bytes)), chunk);
+    }
+
+    /**
+     * Like {@link #submitPushNotifications(List, long, TimeUnit)}, waiting as long as it takes.
+     */
+    public CompletableFuture<List<ExpoPushTicket>> submitPushNotifications(List<TPushMessage> chunk)
+            throws InterruptedException, PushNotificationException {
+        try {
+            return submitPushNotifications(chunk, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CompletableFuture<ExpoPushChunkResult<TPushMessage>> _sendChunkAsync(List<TPushMessage> messages, ChunkTiming timing) throws PushNotificationException {
+        return _sendCheckedAsync(messages, sendable -> _sendChunkAsync(sendable, timing, null, 0));
+    }
+
+    private interface ChunkSender<TPushMessage extends ExpoPushMessageCustomData<?>> {
+        CompletableFuture<ExpoPushChunkResult<TPushMessage>> send(List<TPushMessage> messages) throws PushNotificationException;
+    }
+
+    // Applied when a chunk is actually sent rather than when it is chunked, since dispatchers and schedulers
+    // can hold chunks for a long time: drops messages that expired while queued, and applies deviceThrottle,
+    // so chunks that are queued or rejected do not use up a device's budget. Withheld recipients are left
+    // out of the request and get an error ticket in its place, so tickets still line up with `messages`.
+    private CompletableFuture<ExpoPushChunkResult<TPushMessage>> _sendCheckedAsync(List<TPushMessage> messages, ChunkSender<TPushMessage> send) throws PushNotificationException {
+        if (!DROP_EXPIRED_MESSAGES && deviceThrottle == null) return send.send(messages);
+        String[] withheld = new String[(int) _getActualMessagesCount(messages)];
+        List<TPushMessage> sendable = _withhold(messages, withheld);
+        if (sendable == messages) return send.send(messages);
+        if (sendable.isEmpty()) {
+            return CompletableFuture.completedFuture(_withWithheldTickets(messages, withheld,
+                    new ExpoPushChunkResult<>(sendable, Collections.emptyList(), Collections.emptyList(), null)));
+        }
+        return send.send(sendable).thenApply(result -> _withWithheldTickets(messages, withheld, result));
+    }
+
+    // Returns `messages` itself if nothing was withheld.
+    private List<TPushMessage> _withhold(List<TPushMessage> messages, String[] withheld) {
+        long now = System.currentTimeMillis();
+        DeviceThrottle throttle = deviceThrottle;
+        DeferredMessageSink<TPushMessage> sink = deferredMessageSink;
+        boolean defer = throttle != null && throttle.getPolicy() == DeviceThrottle.Policy.DEFER;
+        if (defer && sink == null) {
+            throw new IllegalStateException("DeviceThrottle.Policy.DEFER needs a deferredMessageSink");
+        }
+        List<TPushMessage> sendable = new ArrayList<>(messages.size());
+        List<TPushMessage> deferred = new ArrayList<>();
+        boolean changed = false;
+        int index = 0;
+        for (TPushMessage message : messages) {
+            if (DROP_EXPIRED_MESSAGES && message.isExpired(now)) {
+                Arrays.fill(withheld, index, index + message.getTo().size(), EXPIRED_TICKET_MESSAGE);
+                index += message.getTo().size();
+                changed = true;
+                expiredMessagesDropped.incrementAndGet();
+                if (expiredMessageListener != null) expiredMessageListener.onExpired(message);
+                continue;
+            }
+            if (throttle == null) {
+                sendable.add(message);
+                index += message.getTo().size();
+                continue;
+            }
+            List<String> to = new ArrayList<>(message.getTo().size());
+            for (String recipient : message.getTo()) {
+                if (throttle.tryAcquire(recipient, now)) {
+                    to.add(recipient);
+                } else {
+                    if (defer) {
+                        withheld[index] = DEFERRED_TICKET_MESSAGE;
+                        TPushMessage single = _copy(message);
+                        single.setTo(new ArrayList<>(Collections.singletonList(recipient)));
+                        deferred.add(single);
+                    } else {
+                        withheld[index] = THROTTLED_TICKET_MESSAGE;
+                        throttledRecipientsDropped.incrementAndGet();
+                    }
+                }
+                index++;
+            }
+            if (to.size() == message.getTo().size()) {
+                sendable.add(message);
+            } else {
+                changed = true;
+                if (!to.isEmpty()) {
+                    TPushMessage partial = _copy(message);
+                    partial.setTo(to);
+                    sendable.add(partial);
+                }
+            }
+        }
+        if (!deferred.isEmpty()) {
+            sink.deferAll(deferred, throttle.retryAt(now));
+            throttledRecipientsDeferred.addAndGet(deferred.size());
+        }
+        return changed ? sendable : messages;
+    }
+
+    private ExpoPushChunkResult<TPushMessage> _withWithheldTickets(List<TPushMessage> messages, String[] withheld, ExpoPushChunkResult<TPushMessage> result) {
+        if (result.getFailure() != null || (result.getTickets().isEmpty() && !result.getErrors().isEmpty())) {
+            return new ExpoPushChunkResult<>(messages, result.getTickets(), result.getErrors(), result.getFailure());
+        }
+        List<ExpoPushTicket> sent = result.getTickets();
+        List<ExpoPushTicket> tickets = new ArrayList<>(withheld.length);
+        int next = 0;
+        for (String reason : withheld) {
+            if (reason != null) {
+                ExpoPushTicket ticket = new ExpoPushTicket();
+                ticket.setStatus(Status.ERROR);
+                ticket.setMessage(reason);
+                ticket.setDetails(new ExpoPushTicket.Details());
+                tickets.add(ticket);
+            } else if (next < sent.size()) {
+                tickets.add(sent.get(next++));
+            }
+        }
+        return new ExpoPushChunkResult<>(messages, tickets, result.getErrors(), null);
+    }
+
+    // Completes normally with the failure in the result, except for failures before the request is sent,
+    // which are thrown. A null json is serialized by _postNotificationAsync.
+    private CompletableFuture<ExpoPushChunkResult<TPushMessage>> _sendChunkAsync(List<TPushMessage> messages, ChunkTiming timing,
+                                                                                 String json, long serializationNanos) throws PushNotificationException {
+        CompletableFuture<ExpoPushChunkResult<TPushMessage>> ret = null;
+        PushMetrics metrics = pushMetrics;
+        ChunkTiming phases = timing == null && metrics != PushMetrics.NOOP ? new ChunkTiming() : timing;
+        long start = System.nanoTime() - serializationNanos;
+        metrics.requestStarted(PushMetrics.Operation.SEND, (int) _getActualMessagesCount(messages));
+        try {
+            URL url = new URL(baseApiUrl + "/push/send");
+            if (json != null && phases != null) phases.set(ChunkTiming.Phase.SERIALIZATION, serializationNanos);
+            ret = (json != null ? _postJsonAsync(url, json, phases) : _postNotificationAsync(url, messages, phases))
+                    .handle((String jsonString, Throwable throwable) -> {
+                        if (throwable != null) {
+                            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                    ? throwable.getCause()
+                                    : throwable;
+                            return ExpoPushChunkResult.failed(messages, cause);
+                        }
+                        long parseStart = System.nanoTime();
                         try {
                             ObjectMapper mapper = new ObjectMapper();
                             JsonNode responseJson = mapper.readTree(jsonString);
 
                             List<ExpoPushTicket> retList = new ArrayList<>();
 
-                            JsonNode dataNode = mapper.readTree(jsonString).get("data");
+                            JsonNode dataNode = responseJson.get("data");
                             if (dataNode != null) {
                                 for (JsonNode node : dataNode) {
                                     retList.add(mapper.convertValue(node, ExpoPushTicket.class));
                                 }
                             }
 
+                            for (ExpoPushTicket ticket : retList) {
+                                metrics.ticket(ticket.getStatus(), ticket.getDetails() != null ? ticket.getDetails().getError() : null);
+                            }
+                            _processTickets(messages, retList);
+
+                            List<ExpoPushError> errorsList = Collections.emptyList();
                             JsonNode errorsNode = responseJson.get("errors");
                             if (errorsNode != null) {
-                                List<ExpoPushError> errorsList = new ArrayList<>();
+                                errorsList = new ArrayList<>();
                                 for (JsonNode node : errorsNode) {
                                     errorsList.add(mapper.convertValue(node, ExpoPushError.class));
                                 }
-                                throw new PushNotificationException(
-                                        new PushNotificationErrorsException(errorsList, retList),
-                                        messages
-                                );
                             }
 
-                            return retList;
-                        } catch (IOException e) {
-                            throw new PushNotificationException(e, messages);
+                            return new ExpoPushChunkResult<>(messages, retList, errorsList, null);
+                        } catch (Exception e) {
+                            return ExpoPushChunkResult.failed(messages, new PushNotificationException(e, messages));
+                        } finally {
+                            if (phases != null) phases.set(ChunkTiming.Phase.PARSING, System.nanoTime() - parseStart);
                         }
                     });
         } catch (Exception e) {
+            metrics.requestCompleted(PushMetrics.Operation.SEND, System.nanoTime() - start, false);
             throw new PushNotificationException(e, messages);
         }
-        return ret;
+        return ret.whenComplete((result, throwable) -> {
+            metrics.requestCompleted(PushMetrics.Operation.SEND, System.nanoTime() - start, throwable == null && result.isSuccess());
+            if (phases != null) _reportPhases(metrics, phases);
+        });
+    }
+
+    private static void _reportPhases(PushMetrics metrics, ChunkTiming phases) {
+        for (ChunkTiming.Phase phase : ChunkTiming.Phase.values()) {
+            long nanos = phases.get(phase);
+            if (nanos > 0) metrics.phase(phase, nanos);
+        }
+    }
+
+    public CompletableFuture<List<ExpoPushReceipt>> getPushNotificationReceiptsAsync(List<String> _ids) throws PushNotificationReceiptsException {
+        return _getReceiptsAsync(_ids).thenApply(result -> {
+            Throwable failure = result.getFailure();
+            if (failure instanceof CompletionException) throw (CompletionException) failure;
+            if (failure != null) throw new CompletionException(failure);
+            if (!result.getErrors().isEmpty()) {
+                throw new PushNotificationReceiptsException(
+                        new PushNotificationReceiptsErrorsException(result.getErrors(), result.getReceipts()),
+                        _ids
+                );
+            }
+            return result.getReceipts();
+        });
+    }
+
+    /**
+     * Like {@link #getPushNotificationReceiptsAsync(List)}, but the returned future always completes
+     * normally; request errors and failures are reported in the result.
+     */
+    public CompletableFuture<ExpoPushReceiptsResult> getPushNotificationReceiptsResultAsync(List<String> _ids) {
+        try {
+            return _getReceiptsAsync(_ids);
+        } catch (PushNotificationReceiptsException e) {
+            return CompletableFuture.completedFuture(ExpoPushReceiptsResult.failed(_ids, e.exception));
+        }
     }
 
-        public CompletableFuture<List<ExpoPushReceipt>> getPushNotificationReceiptsAsync(List<String> _ids) throws PushNotificationReceiptsException {
-        CompletableFuture<List<ExpoPushReceipt>> ret = null;
+    private CompletableFuture<ExpoPushReceiptsResult> _getReceiptsAsync(List<String> _ids) throws PushNotificationReceiptsException {
+        CompletableFuture<ExpoPushReceiptsResult> ret = null;
+        PushMetrics metrics = pushMetrics;
+        long start = System.nanoTime();
+        metrics.requestStarted(PushMetrics.Operation.RECEIPTS, _ids.size());
         try {
             ret = _postReceiptsAsync(new URL(baseApiUrl + "/push/getReceipts"), _ids)
-                    .thenApply((String jsonString) -> {
+                    .handle((String jsonString, Throwable throwable) -> {
+                        if (throwable != null) {
+                            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                    ? throwable.getCause()
+                                    : throwable;
+                            return ExpoPushReceiptsResult.failed(_ids, cause);
+                        }
                         try {
                             ObjectMapper mapper = new ObjectMapper();
                             JsonNode responseJson = mapper.readTree(jsonString);
@@ -108,42 +420,225 @@ public class PushClientCustomData<TPushMessage extends ExpoPushMessageCustomData
                                 }
                             }
 
+                            for (ExpoPushReceipt receipt : retList) {
+                                metrics.receipt(receipt.getStatus(), receipt.getDetails() != null ? receipt.getDetails().getError() : null);
+                            }
+                            _processReceipts(retList);
+
+                            List<ExpoPushError> errorsList = Collections.emptyList();
                             JsonNode errorsNode = responseJson.get("errors");
                             if (errorsNode != null) {
-                                List<ExpoPushError> errorsList = new ArrayList<>();
+                                errorsList = new ArrayList<>();
                                 for (JsonNode node : errorsNode) {
                                     errorsList.add(mapper.convertValue(node, ExpoPushError.class));
                                 }
-                                throw new PushNotificationReceiptsException(
-                                        new PushNotificationReceiptsErrorsException(errorsList, retList),
-                                        _ids
-                                );
                             }
 
-                            return retList;
-                        } catch (PushNotificationReceiptsException e) {
-                            throw e;
+                            return new ExpoPushReceiptsResult(_ids, retList, errorsList, null);
                         } catch (Exception e) {
-                            throw new PushNotificationReceiptsException(e, _ids);
+                            return ExpoPushReceiptsResult.failed(_ids, new PushNotificationReceiptsException(e, _ids));
                         }
                     });
         } catch (Exception e) {
+            metrics.requestCompleted(PushMetrics.Operation.RECEIPTS, System.nanoTime() - start, false);
             throw new PushNotificationReceiptsException(e, _ids);
         }
-        return ret;
+        return ret.whenComplete((result, throwable) ->
+                metrics.requestCompleted(PushMetrics.Operation.RECEIPTS, System.nanoTime() - start, throwable == null && result.isSuccess()));
+    }
+
+    /**
+     * Sends the oldest pending messages of {@code spool}, up to {@link #PUSH_NOTIFICATION_CHUNK_LIMIT}
+     * recipients, and acknowledges them once Expo has answered. Each ticket is returned paired with the
+     * message its recipient was sent. Messages are released back to the spool
+     * when the request fails in transit or is rate limited, so a later call retries them.
+     */
+    public CompletableFuture<List<ExpoPushMessageTicketPair<TPushMessage>>> sendSpooledPushNotificationsAsync(MessageSpool<TPushMessage> spool) throws IOException {
+        List<MessageSpool.Entry<TPushMessage>> entries = spool.poll(PUSH_NOTIFICATION_CHUNK_LIMIT);
+        List<TPushMessage> messages = entries.stream().map(MessageSpool.Entry::getMessage).collect(Collectors.toList());
+
+        List<List<TPushMessage>> chunks = chunkPushNotifications(messages);
+        List<CompletableFuture<List<ExpoPushTicket>>> futures = new ArrayList<>();
+        try {
+            for (List<TPushMessage> chunk : chunks) {
+                futures.add(sendPushNotificationsAsync(chunk));
+            }
+        } catch (PushNotificationException e) {
+            spool.release(entries);
+            throw e;
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, throwable) -> {
+                    try {
+                        if (throwable == null) {
+                            spool.acknowledge(entries);
+                            List<ExpoPushMessageTicketPair<TPushMessage>> pairs = new ArrayList<>();
+                            for (int i = 0; i < chunks.size(); i++) {
+                                pairs.addAll(PushDispatcher._zipRecipientsTickets(chunks.get(i), futures.get(i).join()));
+                            }
+                            return pairs;
+                        }
+                        if (_isRetryable(throwable)) {
+                            spool.release(entries);
+                            pushMetrics.retried(PushMetrics.Operation.SEND, entries.size());
+                        } else {
+                            spool.acknowledge(entries);
+                        }
+                    } catch (IOException e) {
+                        throw new PushNotificationException(e, messages);
+                    }
+                    if (throwable instanceof CompletionException) throw (CompletionException) throwable;
+                    throw new CompletionException(throwable);
+                });
+    }
+
+    /**
+     * Sends the oldest waiting messages of {@code queue}, up to {@link #PUSH_NOTIFICATION_CHUNK_LIMIT}
+     * recipients. Each ticket is returned paired with the message its recipient was sent. Like
+     * {@link #sendSpooledPushNotificationsAsync(MessageSpool)}, messages are put back into the queue when
+     * the request fails in transit or is rate limited, unless a newer message replaced them meanwhile.
+     */
+    public CompletableFuture<List<ExpoPushMessageTicketPair<TPushMessage>>> sendCollapsedPushNotificationsAsync(CollapsingSendQueue<TPushMessage> queue) throws PushNotificationException {
+        List<CollapsingSendQueue.Key> keys = new ArrayList<>();
+        List<TPushMessage> messages = queue.drain(PUSH_NOTIFICATION_CHUNK_LIMIT, keys);
+
+        List<List<TPushMessage>> chunks = chunkPushNotifications(messages);
+        List<CompletableFuture<List<ExpoPushTicket>>> futures = new ArrayList<>();
+        try {
+            for (List<TPushMessage> chunk : chunks) {
+                futures.add(sendPushNotificationsAsync(chunk));
+            }
+        } catch (PushNotificationException e) {
+            queue.requeue(keys, messages);
+            throw e;
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, throwable) -> {
+                    if (throwable == null) {
+                        List<ExpoPushMessageTicketPair<TPushMessage>> pairs = new ArrayList<>();
+                        for (int i = 0; i < chunks.size(); i++) {
+                            pairs.addAll(PushDispatcher._zipRecipientsTickets(chunks.get(i), futures.get(i).join()));
+                        }
+                        return pairs;
+                    }
+                    if (_isRetryable(throwable)) {
+                        queue.requeue(keys, messages);
+                        pushMetrics.retried(PushMetrics.Operation.SEND, messages.size());
+                    }
+                    if (throwable instanceof CompletionException) throw (CompletionException) throwable;
+                    throw new CompletionException(throwable);
+                });
+    }
+
+    // Because we're using generics, we can't use the constructor. Instead, clone() the message
+    @SuppressWarnings("unchecked")
+    static <TPushMessage extends ExpoPushMessageCustomData<?>> TPushMessage _copy(TPushMessage message) {
+        return (TPushMessage) message.clone();
+    }
+
+    static boolean _isRetryable(Throwable throwable) {
+        if (throwable instanceof CompletionException && !(throwable instanceof PushNotificationException)) {
+            throwable = throwable.getCause();
+        }
+        if (!(throwable instanceof PushNotificationException)) return true;
+        Exception cause = ((PushNotificationException) throwable).exception;
+        if (!(cause instanceof PushNotificationErrorsException)) return true;
+        return ((PushNotificationErrorsException) cause).errors.stream()
+                .anyMatch(error -> "TOO_MANY_REQUESTS".equals(error.getCode()));
     }
 
     protected CompletableFuture<String> _postNotificationAsync(URL url, List<? extends TPushMessage> messages) throws CompletionException {
+        return _postNotificationAsync(url, messages, null);
+    }
+
+    protected CompletableFuture<String> _postNotificationAsync(URL url, List<? extends TPushMessage> messages, ChunkTiming timing) throws CompletionException {
         ObjectMapper objectMapper = new ObjectMapper();
         String json = null;
 
+        long start = System.nanoTime();
         try {
             json = objectMapper.
                     writeValueAsString(messages);
         } catch (JsonProcessingException e) {
             throw new PushNotificationException(e, messages);
         }
-        return pushServerResolver.postAsync(url, json);
+        if (timing != null) timing.set(ChunkTiming.Phase.SERIALIZATION, System.nanoTime() - start);
+        return _postJsonAsync(url, json, timing);
+    }
+
+    private CompletableFuture<String> _postJsonAsync(URL url, String json, ChunkTiming timing) throws CompletionException {
+        if (timing == null) return pushServerResolver.postAsync(url, json);
+        return pushServerResolver.postAsync(url, json, timing);
+    }
+
+    private void _processTickets(List<? extends TPushMessage> messages, List<ExpoPushTicket> tickets) {
+        if (ticketJournal == null && deadTokenFilter == null && tokenInvalidationSink == null) return;
+
+        // Expo returns one ticket per recipient, in request order.
+        List<String> recipients = _getRecipients(messages);
+        boolean correlated = recipients.size() == tickets.size();
+        long sentAt = System.currentTimeMillis();
+        List<String> invalidTokens = new ArrayList<>();
+        for (int i = 0; i < tickets.size(); i++) {
+            ExpoPushTicket ticket = tickets.get(i);
+            String recipient = correlated ? recipients.get(i) : null;
+            if (ticket.getStatus() == Status.OK) {
+                if (ticketJournal != null && ticket.getId() != null) {
+                    _runHook(() -> ticketJournal.record(ticket.getId(), sentAt, recipient));
+                }
+            } else if (ticket.getDetails() != null && ticket.getDetails().getError() == TicketError.DEVICENOTREGISTERED) {
+                Object token = ticket.getDetails().getAdditionalProperties().get("expoPushToken");
+                String invalidToken = token != null ? token.toString() : recipient;
+                if (invalidToken != null) invalidTokens.add(invalidToken);
+            }
+        }
+        _onDevicesNotRegistered(invalidTokens);
+    }
+
+    private void _processReceipts(List<ExpoPushReceipt> receipts) {
+        if (ticketJournal == null && deadTokenFilter == null && tokenInvalidationSink == null) return;
+
+        List<String> invalidTokens = new ArrayList<>();
+        for (ExpoPushReceipt receipt : receipts) {
+            if (receipt.getDetails() == null || receipt.getDetails().getError() != ReceiptError.DEVICENOTREGISTERED) continue;
+            Object token = receipt.getDetails().getAdditionalProperties().get("expoPushToken");
+            if (token == null && ticketJournal != null) {
+                TicketJournal.Entry entry = ticketJournal.getPendingTicket(receipt.getId());
+                token = entry != null ? entry.getCorrelation() : null;
+            }
+            if (token != null) invalidTokens.add(token.toString());
+        }
+        _onDevicesNotRegistered(invalidTokens);
+
+        if (ticketJournal != null) {
+            List<String> ids = receipts.stream().map(ExpoPushReceipt::getId).collect(Collectors.toList());
+            _runHook(() -> ticketJournal.acknowledge(ids));
+        }
+    }
+
+    private void _onDevicesNotRegistered(List<String> tokens) {
+        if (tokens.isEmpty()) return;
+        if (deadTokenFilter != null) tokens.forEach(token -> _runHook(() -> deadTokenFilter.add(token)));
+        if (tokenInvalidationSink != null) _runHook(() -> tokenInvalidationSink.invalidate(tokens));
+    }
+
+    // The notifications were delivered whatever a hook does, so its failure must not fail the request.
+    private void _runHook(Runnable hook) {
+        try {
+            hook.run();
+        } catch (RuntimeException e) {
+            hookFailures.incrementAndGet();
+        }
+    }
+
+    protected List<String> _getRecipients(List<? extends TPushMessage> messages) {
+        List<String> recipients = new ArrayList<>();
+        for (TPushMessage message : messages) {
+            recipients.addAll(message.getTo());
+        }
+        return recipients;
     }
 
     public List<ExpoPushMessageTicketPair<TPushMessage>> zipMessagesTickets(
@@ -179,6 +674,24 @@ public class PushClientCustomData<TPushMessage extends ExpoPushMessageCustomData
         ).collect(Collectors.toList());
     }
 
+    /**
+     * Groups {@code zippedMessagesTickets} by ticket status and error in one pass, instead of calling
+     * {@link #filterAllSuccessfulMessages(List)} and {@link #filterAllMessagesWithError(List, TicketError)}
+     * once per bucket.
+     */
+    public ExpoPushClassification<ExpoPushMessageTicketPair<TPushMessage>, TicketError> classifyMessagesTickets(
+            List<ExpoPushMessageTicketPair<TPushMessage>> zippedMessagesTickets) {
+        return ExpoPushClassification.classify(zippedMessagesTickets, TicketError.class,
+                p -> p.ticket.getStatus(),
+                p -> p.ticket.getDetails() == null ? null : p.ticket.getDetails().getError());
+    }
+
+    public ExpoPushClassification<ExpoPushReceipt, ReceiptError> classifyReceipts(List<ExpoPushReceipt> receipts) {
+        return ExpoPushClassification.classify(receipts, ReceiptError.class,
+                ExpoPushReceipt::getStatus,
+                r -> r.getDetails() == null ? null : r.getDetails().getError());
+    }
+
     public List<String> getTicketIdsFromPairs(List<ExpoPushMessageTicketPair<TPushMessage>> okTicketMessagePairs) {
         return getTicketIds(okTicketMessagePairs.stream().map(p->p.ticket).collect(Collectors.toList()));
     }
@@ -212,17 +725,48 @@ public class PushClientCustomData<TPushMessage extends ExpoPushMessageCustomData
         return pushServerResolver.postAsync(url, json);
     }
 
+    private static final String EXPONENT_PUSH_TOKEN_PREFIX = "ExponentPushToken[";
+    private static final String EXPO_PUSH_TOKEN_PREFIX = "ExpoPushToken[";
+
     static public boolean isExponentPushToken(String token) {
-        String prefixA = "ExponentPushToken[";
-        String prefixB = "ExpoPushToken[";
-        String postfix = "]";
-        String regex = "[a-zA-Z0-9]{8}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{12}";
+        // Hand-written equivalent of matching "[a-zA-Z0-9]{8}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{12}",
+        // or a "]"-terminated token with one of the Expo prefixes. It allocates nothing.
+        int length = token.length();
+        if (length == 36 && _isDeviceId(token)) return true;
+        if (length == 0 || token.charAt(length - 1) != ']') return false;
+        return token.startsWith(EXPONENT_PUSH_TOKEN_PREFIX) || token.startsWith(EXPO_PUSH_TOKEN_PREFIX);
+    }
 
-        if (token.matches(regex)) return true;
-        if (!token.endsWith(postfix)) return false;
-        if (token.startsWith(prefixA)) return true;
-        if (token.startsWith(prefixB)) return true;
-        return false;
+    private static boolean _isDeviceId(String token) {
+        for (int i = 0; i < 36; i++) {
+            char c = token.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return false;
+            } else if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the positions of all tokens, in iteration order, for which {@link #isExponentPushToken(String)}
+     * is false; {@code null} entries count as invalid
+     */
+    static public int[] findInvalidPushTokens(Collection<String> tokens) {
+        return findInvalidPushTokens(tokens, false);
+    }
+
+    static public int[] findInvalidPushTokens(Collection<String> tokens, boolean parallel) {
+        List<String> list = tokens instanceof List && tokens instanceof RandomAccess
+                ? (List<String>) tokens
+                : new ArrayList<>(tokens);
+        IntStream indices = IntStream.range(0, list.size());
+        if (parallel) indices = indices.parallel();
+        return indices.filter(i -> {
+            String token = list.get(i);
+            return token == null || !isExponentPushToken(token);
+        }).toArray();
     }
 
     public long _getActualMessagesCount(List<TPushMessage> messages) {
@@ -250,15 +794,38 @@ public class PushClientCustomData<TPushMessage extends ExpoPushMessageCustomData
         return chunks;
     }
 
+    /**
+     * Merges messages that differ only in their recipients into one multi-recipient message each.
+     * Chunk {@link CoalescedPushMessages#getMessages()} as usual and map the tickets back with
+     * {@link CoalescedPushMessages#zipOriginalMessagesTickets(List, List)}.
+     */
+    public CoalescedPushMessages<TPushMessage> coalescePushNotifications(List<TPushMessage> messages) {
+        return new CoalescedPushMessages<>(messages);
+    }
+
     public List<List<TPushMessage>> chunkPushNotifications(List<TPushMessage> messages) {
+        long start = System.nanoTime();
         List<List<TPushMessage>> chunks = new ArrayList<>();
         List<TPushMessage> chunk = new ArrayList<>();
+        // Drops a recipient that already gets a message with the same content in this call.
+        RecipientDeduplicator deduplicator = DEDUPLICATE_RECIPIENTS
+                ? new RecipientDeduplicator((int) Math.min(_getActualMessagesCount(messages), Integer.MAX_VALUE / 4))
+                : null;
 
+        long now = System.currentTimeMillis();
         long chunkMessagesCount = 0;
         for (TPushMessage message : messages) {
+            if (DROP_EXPIRED_MESSAGES && message.isExpired(now)) {
+                expiredMessagesDropped.incrementAndGet();
+                if (expiredMessageListener != null) expiredMessageListener.onExpired(message);
+                continue;
+            }
             List<String> partialTo = new ArrayList<>();
+            int contentId = deduplicator != null ? deduplicator.contentId(message) : 0;
             for (String recipient : message.getTo()) {
                 if (recipient.length() <= 0) continue;
+                if (deadTokenFilter != null && deadTokenFilter.isDead(recipient)) continue;
+                if (deduplicator != null && !deduplicator.add(contentId, recipient)) continue;
                 partialTo.add(recipient);
                 chunkMessagesCount++;
                 if (chunkMessagesCount >= PUSH_NOTIFICATION_CHUNK_LIMIT) {
@@ -295,6 +862,11 @@ public class PushClientCustomData<TPushMessage extends ExpoPushMessageCustomData
             chunks.add(chunk);
         }
 
+        if (deduplicator != null) {
+            duplicateRecipientsDropped.addAndGet(deduplicator.getDuplicateCount());
+        }
+
+        pushMetrics.phase(ChunkTiming.Phase.CHUNKING, System.nanoTime() - start);
         return chunks;
     }
 }
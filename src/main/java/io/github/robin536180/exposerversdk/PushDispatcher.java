@@ -0,0 +1,214 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.Priority;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends messages through one lane per {@link Priority}, so a large bulk send does not hold up
+ * transactional notifications queued after it.
+ * <p>
+ * Messages are chunked per lane, so a request never mixes priorities. Lanes take turns by smooth
+ * weighted round robin: with the default weights, high priority chunks get 8 of every 13 request slots,
+ * default priority 4 and normal priority 1, and a lane with nothing queued gives its turns to the others.
+ * The dispatcher limits the requests in flight overall, and each lane has its own limits on requests in
+ * flight and on chunks waiting. Messages without a priority use the {@link Priority#OK}
+ * ({@code "default"}) lane.
+ */
+public class PushDispatcher<TPushMessage extends ExpoPushMessageCustomData<?>> {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    public static final int DEFAULT_MAX_LANE_IN_FLIGHT = 4;
+    public static final int DEFAULT_MAX_QUEUED_CHUNKS = 10000;
+
+    private final PushClientCustomData<TPushMessage> client;
+    private final Map<Priority, Lane<TPushMessage>> lanes = new EnumMap<>(Priority.class);
+    private final AtomicInteger wip = new AtomicInteger();
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int inFlight = 0;
+
+    public PushDispatcher(PushClientCustomData<TPushMessage> client) {
+        this.client = client;
+        lanes.put(Priority.ERROR, new Lane<>(8, DEFAULT_MAX_LANE_IN_FLIGHT, DEFAULT_MAX_QUEUED_CHUNKS));
+        lanes.put(Priority.OK, new Lane<>(4, DEFAULT_MAX_LANE_IN_FLIGHT, DEFAULT_MAX_QUEUED_CHUNKS));
+        lanes.put(Priority.NORMAL, new Lane<>(1, DEFAULT_MAX_LANE_IN_FLIGHT, DEFAULT_MAX_QUEUED_CHUNKS));
+    }
+
+    /**
+     * Limits the requests in flight across all lanes; the lanes share these slots by weight.
+     */
+    public synchronized PushDispatcher<TPushMessage> setMaxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive");
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    public synchronized PushDispatcher<TPushMessage> setLane(Priority priority, int weight, int maxInFlight, int maxQueuedChunks) {
+        if (weight <= 0 || maxInFlight <= 0 || maxQueuedChunks <= 0) {
+            throw new IllegalArgumentException("Lane limits must be positive");
+        }
+        Lane<TPushMessage> lane = lanes.get(priority);
+        lane.weight = weight;
+        lane.maxInFlight = maxInFlight;
+        lane.maxQueued = maxQueuedChunks;
+        return this;
+    }
+
+    /**
+     * Queues {@code messages} on the lanes of their priorities.
+     *
+     * @return the tickets, each paired with the chunked message it belongs to; lanes complete
+     * independently, so pairs are grouped by lane rather than in submission order
+     * @throws RejectedExecutionException if a lane does not have room for all of its chunks; nothing is
+     * queued in that case
+     */
+    public CompletableFuture<List<ExpoPushMessageTicketPair<TPushMessage>>> submit(List<TPushMessage> messages) {
+        Map<Priority, List<TPushMessage>> byLane = new EnumMap<>(Priority.class);
+        for (TPushMessage message : messages) {
+            byLane.computeIfAbsent(_laneOf(message), p -> new ArrayList<>()).add(message);
+        }
+        Map<Priority, List<List<TPushMessage>>> chunks = new EnumMap<>(Priority.class);
+        for (Map.Entry<Priority, List<TPushMessage>> entry : byLane.entrySet()) {
+            chunks.put(entry.getKey(), client.chunkPushNotifications(entry.getValue()));
+        }
+
+        List<Chunk<TPushMessage>> submitted = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Priority, List<List<TPushMessage>>> entry : chunks.entrySet()) {
+                Lane<TPushMessage> lane = lanes.get(entry.getKey());
+                if (lane.queue.size() + entry.getValue().size() > lane.maxQueued) {
+                    throw new RejectedExecutionException("Lane " + entry.getKey() + " is full");
+                }
+            }
+            for (Map.Entry<Priority, List<List<TPushMessage>>> entry : chunks.entrySet()) {
+                Lane<TPushMessage> lane = lanes.get(entry.getKey());
+                for (List<TPushMessage> messagesOfChunk : entry.getValue()) {
+                    Chunk<TPushMessage> chunk = new Chunk<>(lane, messagesOfChunk);
+                    lane.queue.add(chunk);
+                    submitted.add(chunk);
+                }
+            }
+        }
+        _drain();
+
+        return CompletableFuture.allOf(submitted.stream().map(c -> c.tickets).toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    List<ExpoPushMessageTicketPair<TPushMessage>> pairs = new ArrayList<>();
+                    for (Chunk<TPushMessage> chunk : submitted) {
+                        pairs.addAll(_zipRecipientsTickets(chunk.messages, chunk.tickets.join()));
+                    }
+                    return pairs;
+                });
+    }
+
+    public synchronized int queuedCount(Priority priority) {
+        return lanes.get(priority).queue.size();
+    }
+
+    public synchronized int inFlightCount(Priority priority) {
+        return lanes.get(priority).inFlight;
+    }
+
+    private static Priority _laneOf(ExpoPushMessageCustomData<?> message) {
+        return message.getPriority() != null ? message.getPriority() : Priority.OK;
+    }
+
+    // Only one thread picks and sends at a time; requests that complete synchronously loop here instead
+    // of recursing.
+    private void _drain() {
+        if (wip.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            Chunk<TPushMessage> chunk;
+            while ((chunk = _next()) != null) {
+                _send(chunk);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private synchronized Chunk<TPushMessage> _next() {
+        if (inFlight >= maxInFlight) return null;
+        Lane<TPushMessage> best = null;
+        int total = 0;
+        for (Lane<TPushMessage> lane : lanes.values()) {
+            if (lane.queue.isEmpty() || lane.inFlight >= lane.maxInFlight) continue;
+            lane.current += lane.weight;
+            total += lane.weight;
+            if (best == null || lane.current > best.current) best = lane;
+        }
+        if (best == null) return null;
+        best.current -= total;
+        best.inFlight++;
+        inFlight++;
+        return best.queue.poll();
+    }
+
+    private void _send(Chunk<TPushMessage> chunk) {
+        CompletableFuture<List<ExpoPushTicket>> request;
+        try {
+            request = client.sendPushNotificationsAsync(chunk.messages);
+        } catch (RuntimeException e) {
+            // Not only PushNotificationException: the lane counters are only released below.
+            request = new CompletableFuture<>();
+            request.completeExceptionally(e);
+        }
+        request.whenComplete((tickets, throwable) -> {
+            synchronized (this) {
+                chunk.lane.inFlight--;
+                inFlight--;
+            }
+            if (throwable != null) {
+                chunk.tickets.completeExceptionally(throwable);
+            } else {
+                chunk.tickets.complete(tickets);
+            }
+            _drain();
+        });
+    }
+
+    // Expo answers with one ticket per recipient, in request order.
+    static <TPushMessage extends ExpoPushMessageCustomData<?>> List<ExpoPushMessageTicketPair<TPushMessage>> _zipRecipientsTickets(
+            List<TPushMessage> messages, List<ExpoPushTicket> tickets) {
+        List<ExpoPushMessageTicketPair<TPushMessage>> pairs = new ArrayList<>();
+        int ticket = 0;
+        for (TPushMessage message : messages) {
+            for (int i = 0; i < message.getTo().size() && ticket < tickets.size(); i++) {
+                pairs.add(new ExpoPushMessageTicketPair<>(message, tickets.get(ticket++)));
+            }
+        }
+        return pairs;
+    }
+
+    private static class Lane<TPushMessage> {
+        private int weight;
+        private int maxInFlight;
+        private int maxQueued;
+        private int current = 0;
+        private int inFlight = 0;
+        private final ArrayDeque<Chunk<TPushMessage>> queue = new ArrayDeque<>();
+
+        Lane(int weight, int maxInFlight, int maxQueued) {
+            this.weight = weight;
+            this.maxInFlight = maxInFlight;
+            this.maxQueued = maxQueued;
+        }
+    }
+
+    private static class Chunk<TPushMessage> {
+        private final Lane<TPushMessage> lane;
+        private final List<TPushMessage> messages;
+        private final CompletableFuture<List<ExpoPushTicket>> tickets = new CompletableFuture<>();
+
+        Chunk(Lane<TPushMessage> lane, List<TPushMessage> messages) {
+            this.lane = lane;
+            this.messages = messages;
+        }
+    }
+}
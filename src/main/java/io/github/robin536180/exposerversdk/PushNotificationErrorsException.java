@@ -10,4 +10,9 @@ public class PushNotificationErrorsException extends Exception {
         this.errors = errors;
         this.data = data;
     }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
@@ -11,4 +11,10 @@ public class PushNotificationException extends CompletionException {
         this.exception = e;
         this.messages = messages;
     }
+
+    // Carries data about a failed request; the stack trace would only show the completing thread.
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
@@ -10,4 +10,9 @@ public class PushNotificationReceiptsErrorsException extends Exception {
         this.errors = errors;
         this.receipts = receipts;
     }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
@@ -10,4 +10,9 @@ public class PushNotificationReceiptsException extends CompletionException {
         this.exception = e;
         this.ids = ids;
     }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
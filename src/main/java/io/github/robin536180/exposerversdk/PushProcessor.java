@@ -0,0 +1,306 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.Status;
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive Streams processor that takes messages and publishes one message/ticket pair per recipient.
+ * <p>
+ * Messages are gathered into chunks and sent with at most {@code maxInFlightChunks} requests in flight.
+ * Demand goes all the way through: upstream is only asked for as many messages as fit into the free
+ * request slots, judged by the recipients per message seen so far, and no new request starts while more
+ * than {@code maxInFlightChunks} chunks of pairs are waiting for downstream demand. Messages with many
+ * recipients can still fill more chunks than there are free slots; those chunks wait for a slot. A
+ * partial chunk is sent {@code lingerMillis} after its first message, or when upstream completes.
+ * <p>
+ * A failed request does not end the stream: its recipients get tickets with {@link Status#ERROR} and
+ * the failure as message, see {@link PushClientCustomData#sendPushNotificationsResultAsync(List)}.
+ * Pairs are published in the order requests complete. An upstream error is passed on after the pairs
+ * of messages already received. For {@code java.util.concurrent.Flow} on Java 9 and later, wrap with
+ * {@code org.reactivestreams.FlowAdapters.toFlowProcessor}.
+ */
+public class PushProcessor<TPushMessage extends ExpoPushMessageCustomData<?>>
+        implements Processor<TPushMessage, ExpoPushMessageTicketPair<TPushMessage>> {
+    public static final int DEFAULT_MAX_IN_FLIGHT_CHUNKS = 4;
+    public static final long DEFAULT_LINGER_MILLIS = 50;
+
+    private static final ScheduledThreadPoolExecutor LINGER_TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "expo-push-processor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        LINGER_TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final PushClientCustomData<TPushMessage> client;
+    private final int maxInFlightChunks;
+    private final long lingerMillis;
+    private final int chunkLimit;
+
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<TPushMessage> incoming = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<List<ExpoPushMessageTicketPair<TPushMessage>>> completed = new ConcurrentLinkedQueue<>();
+    private volatile Subscription upstream;
+    private volatile Subscriber<? super ExpoPushMessageTicketPair<TPushMessage>> downstream;
+    private volatile boolean upstreamDone;
+    private volatile Throwable upstreamError;
+    private volatile boolean cancelled;
+    private volatile Throwable badRequest;
+    private volatile boolean lingerExpired;
+
+    // Only touched inside _drain.
+    private final List<TPushMessage> batch = new ArrayList<>();
+    private final ArrayDeque<ExpoPushMessageTicketPair<TPushMessage>> ready = new ArrayDeque<>();
+    private final ArrayDeque<List<TPushMessage>> chunks = new ArrayDeque<>();
+    private long batchRecipients = 0;
+    private long upstreamPending = 0;
+    private long receivedMessages = 0;
+    private long receivedRecipients = 0;
+    private int inFlight = 0;
+    private boolean lingerScheduled = false;
+    private boolean terminated = false;
+
+    public PushProcessor(PushClientCustomData<TPushMessage> client) {
+        this(client, DEFAULT_MAX_IN_FLIGHT_CHUNKS, DEFAULT_LINGER_MILLIS);
+    }
+
+    public PushProcessor(PushClientCustomData<TPushMessage> client, int maxInFlightChunks, long lingerMillis) {
+        if (maxInFlightChunks <= 0 || lingerMillis < 0) {
+            throw new IllegalArgumentException("maxInFlightChunks must be positive and lingerMillis not negative");
+        }
+        this.client = client;
+        this.maxInFlightChunks = maxInFlightChunks;
+        this.lingerMillis = lingerMillis;
+        this.chunkLimit = (int) client.PUSH_NOTIFICATION_CHUNK_LIMIT;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (upstream != null || cancelled) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        _drain();
+    }
+
+    @Override
+    public void onNext(TPushMessage message) {
+        if (message == null) throw new NullPointerException("message");
+        incoming.add(message);
+        _drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (throwable == null) throw new NullPointerException("throwable");
+        upstreamError = throwable;
+        upstreamDone = true;
+        _drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        _drain();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ExpoPushMessageTicketPair<TPushMessage>> subscriber) {
+        if (subscriber == null) throw new NullPointerException("subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("PushProcessor allows only one subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    badRequest = new IllegalArgumentException("Requested " + n + " items, see rule 3.9");
+                    cancelled = true;
+                } else {
+                    _addRequested(n);
+                }
+                _drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                _drain();
+            }
+        });
+        downstream = subscriber;
+        _drain();
+    }
+
+    private void _addRequested(long n) {
+        while (true) {
+            long current = requested.get();
+            long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            if (requested.compareAndSet(current, next)) return;
+        }
+    }
+
+    // Same single-drainer loop as PushDispatcher: whoever signals last runs another pass.
+    private void _drain() {
+        if (wip.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            if (!terminated) _drainOnce();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void _drainOnce() {
+        Subscriber<? super ExpoPushMessageTicketPair<TPushMessage>> subscriber = downstream;
+        Subscription subscription = upstream;
+
+        if (cancelled) {
+            terminated = true;
+            if (subscription != null) subscription.cancel();
+            if (badRequest != null && subscriber != null) subscriber.onError(badRequest);
+            incoming.clear();
+            completed.clear();
+            ready.clear();
+            batch.clear();
+            chunks.clear();
+            return;
+        }
+
+        TPushMessage message;
+        while ((message = incoming.poll()) != null) {
+            if (upstreamPending > 0) upstreamPending--;
+            batch.add(message);
+            batchRecipients += message.getTo().size();
+            receivedMessages++;
+            receivedRecipients += message.getTo().size();
+        }
+        List<ExpoPushMessageTicketPair<TPushMessage>> pairs;
+        while ((pairs = completed.poll()) != null) {
+            inFlight--;
+            ready.addAll(pairs);
+        }
+
+        if (subscriber != null) {
+            long demand = requested.get();
+            long emitted = 0;
+            while (emitted < demand && !ready.isEmpty()) {
+                subscriber.onNext(ready.poll());
+                emitted++;
+            }
+            if (emitted > 0 && demand != Long.MAX_VALUE) requested.addAndGet(-emitted);
+        }
+
+        boolean roomForRequests = ready.size() < (long) maxInFlightChunks * chunkLimit;
+        boolean flush = upstreamDone || lingerExpired;
+        while (roomForRequests && inFlight < maxInFlightChunks) {
+            if (chunks.isEmpty()) {
+                if (batch.isEmpty() || (batchRecipients < chunkLimit && !flush)) break;
+                _chunkBatch();
+            } else {
+                _send(chunks.poll());
+            }
+        }
+        if (batch.isEmpty()) lingerExpired = false;
+
+        long freeSlots = maxInFlightChunks - inFlight - chunks.size();
+        if (subscription != null && !upstreamDone && roomForRequests && freeSlots > 0) {
+            long want = _upstreamWant(freeSlots * chunkLimit - batchRecipients);
+            if (want > 0) {
+                upstreamPending += want;
+                subscription.request(want);
+            }
+        }
+
+        if (!batch.isEmpty() && !upstreamDone && !lingerScheduled && !lingerExpired) {
+            lingerScheduled = true;
+            LINGER_TIMER.schedule(() -> {
+                lingerScheduled = false;
+                lingerExpired = true;
+                _drain();
+            }, lingerMillis, TimeUnit.MILLISECONDS);
+        }
+
+        if (upstreamDone && subscriber != null && incoming.isEmpty() && batch.isEmpty() && chunks.isEmpty() && inFlight == 0
+                && completed.isEmpty() && ready.isEmpty()) {
+            terminated = true;
+            if (upstreamError != null) {
+                subscriber.onError(upstreamError);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    // Messages to ask upstream for with room for `recipients` more recipients. Until a message has been
+    // seen, one is enough to learn the fan-out; afterwards at least one keeps the stream moving.
+    private long _upstreamWant(long recipients) {
+        if (receivedMessages == 0) return upstreamPending == 0 ? 1 : 0;
+        long perMessage = (receivedRecipients + receivedMessages - 1) / receivedMessages;
+        long want = recipients / Math.max(1, perMessage) - upstreamPending;
+        return want <= 0 && upstreamPending == 0 && recipients > 0 ? 1 : want;
+    }
+
+    private void _chunkBatch() {
+        List<TPushMessage> messages = new ArrayList<>(batch);
+        batch.clear();
+        batchRecipients = 0;
+        chunks.addAll(client.chunkPushNotifications(messages));
+    }
+
+    private void _send(List<TPushMessage> chunk) {
+        inFlight++;
+        client.sendPushNotificationsResultAsync(chunk).whenComplete((result, throwable) -> {
+            completed.add(_pairs(result != null ? result : ExpoPushChunkResult.failed(chunk, throwable)));
+            _drain();
+        });
+    }
+
+    // Recipients without a ticket, because the request failed or was cut short, get an error ticket.
+    private List<ExpoPushMessageTicketPair<TPushMessage>> _pairs(ExpoPushChunkResult<TPushMessage> result) {
+        List<ExpoPushTicket> tickets = result.getTickets();
+        String reason = result.getFailure() != null ? String.valueOf(result.getFailure().getMessage())
+                : !result.getErrors().isEmpty() ? result.getErrors().get(0).getCode()
+                : "Missing ticket";
+        List<ExpoPushMessageTicketPair<TPushMessage>> pairs = new ArrayList<>();
+        int index = 0;
+        for (TPushMessage message : result.getMessages()) {
+            for (int i = 0; i < message.getTo().size(); i++, index++) {
+                ExpoPushTicket ticket = index < tickets.size() ? tickets.get(index) : null;
+                if (ticket == null) {
+                    ticket = new ExpoPushTicket();
+                    ticket.setStatus(Status.ERROR);
+                    ticket.setMessage(reason);
+                }
+                pairs.add(new ExpoPushMessageTicketPair<>(message, ticket));
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.robin536180.exposerversdk;
+
+/**
+ * Fixed-width binary form of push tokens.
+ * <p>
+ * A token takes {@link #WORDS} longs: an 8 bit header holding the token kind and payload length,
+ * followed by the payload packed at 6 bits per character. {@code ExponentPushToken[...]},
+ * {@code ExpoPushToken[...]} and bare tokens (such as device ids) with up to {@link #MAX_PAYLOAD_LENGTH}
+ * characters from {@code [A-Za-z0-9_-]} can be encoded; anything else is left to the caller.
+ */
+public final class PushTokenCodec {
+    public static final int WORDS = 4;
+    public static final int MAX_PAYLOAD_LENGTH = 40;
+
+    private static final int KIND_EXPONENT = 0;
+    private static final int KIND_EXPO = 1;
+    private static final int KIND_BARE = 2;
+    private static final String[] PREFIXES = {"ExponentPushToken[", "ExpoPushToken[", ""};
+    private static final String[] SUFFIXES = {"]", "]", ""};
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] CODES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(CODES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            CODES[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private PushTokenCodec() {
+    }
+
+    /**
+     * Writes the encoded form of {@code token} to {@code target[offset..offset + WORDS)}.
+     *
+     * @return {@code false}, leaving {@code target} untouched, if the token cannot be encoded
+     */
+    public static boolean encode(String token, long[] target, int offset) {
+        int kind = KIND_BARE;
+        if (token.endsWith("]")) {
+            if (token.startsWith(PREFIXES[KIND_EXPONENT])) {
+                kind = KIND_EXPONENT;
+            } else if (token.startsWith(PREFIXES[KIND_EXPO])) {
+                kind = KIND_EXPO;
+            }
+        }
+        int start = PREFIXES[kind].length();
+        int length = token.length() - start - SUFFIXES[kind].length();
+        if (length > MAX_PAYLOAD_LENGTH) return false;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(start + i);
+            if (c >= 128 || CODES[c] < 0) return false;
+        }
+
+        for (int i = 0; i < WORDS; i++) {
+            target[offset + i] = 0;
+        }
+        _put(target, offset, 0, 8, (kind << 6) | length);
+        for (int i = 0; i < length; i++) {
+            _put(target, offset, 8 + 6 * i, 6, CODES[token.charAt(start + i)]);
+        }
+        return true;
+    }
+
+    public static String decode(long[] source, int offset) {
+        int header = _get(source, offset, 0, 8);
+        int kind = header >>> 6;
+        int length = header & 0x3F;
+        StringBuilder sb = new StringBuilder(PREFIXES[kind].length() + length + 1);
+        sb.append(PREFIXES[kind]);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET[_get(source, offset, 8 + 6 * i, 6)]);
+        }
+        sb.append(SUFFIXES[kind]);
+        return sb.toString();
+    }
+
+    // Bits are numbered from the most significant bit of the first word; fields may straddle two words.
+    private static void _put(long[] words, int offset, int bit, int width, int value) {
+        int index = offset + (bit >>> 6);
+        int shift = 64 - (bit & 63) - width;
+        if (shift >= 0) {
+            words[index] |= (long) value << shift;
+        } else {
+            words[index] |= (long) value >>> -shift;
+            words[index + 1] |= (long) value << (64 + shift);
+        }
+    }
+
+    private static int _get(long[] words, int offset, int bit, int width) {
+        int index = offset + (bit >>> 6);
+        int shift = 64 - (bit & 63) - width;
+        long mask = (1L << width) - 1;
+        if (shift >= 0) {
+            return (int) ((words[index] >>> shift) & mask);
+        }
+        return (int) (((words[index] << -shift) | (words[index + 1] >>> (64 + shift))) & mask);
+    }
+}
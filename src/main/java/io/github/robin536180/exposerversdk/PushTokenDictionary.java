@@ -0,0 +1,164 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Interning table that stores every distinct push token once, in the fixed-width form of
+ * {@link PushTokenCodec}, and hands out dense {@code int} ids for it.
+ * <p>
+ * An audience list becomes an {@code int[]} of ids; {@link #asList(int[])} turns it back into the
+ * {@code List<String>} that {@link ExpoPushMessageCustomData#setTo(List)} expects. Tokens are
+ * rendered from their binary form only while the list is iterated, e.g. during JSON serialization.
+ * <p>
+ * {@link #intern(String)} is synchronized; {@link #get(int)} does not lock.
+ */
+public class PushTokenDictionary {
+    private static final int WORDS = PushTokenCodec.WORDS;
+    // Header value no encoded token uses; marks a slot that points into {@link #fallback}.
+    private static final long FALLBACK_MARKER = -1L;
+
+    private volatile long[] slots;
+    private volatile String[] fallback = new String[16];
+    private int fallbackCount = 0;
+    private volatile int count = 0;
+    private int[] table;
+    private final long[] scratch = new long[WORDS];
+
+    public PushTokenDictionary() {
+        this(1024);
+    }
+
+    public PushTokenDictionary(int expectedTokens) {
+        int capacity = Math.max(16, expectedTokens);
+        slots = new long[capacity * WORDS];
+        table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    }
+
+    /**
+     * @return the id of {@code token}, adding it if this is the first time it is seen
+     */
+    public synchronized int intern(String token) {
+        if (!PushTokenCodec.encode(token, scratch, 0)) {
+            scratch[0] = FALLBACK_MARKER;
+            scratch[1] = scratch[2] = scratch[3] = 0;
+        }
+
+        int mask = table.length - 1;
+        for (int i = _hash(scratch, token) & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == 0) break;
+            if (_matches(entry - 1, token)) return entry - 1;
+        }
+
+        int id = count;
+        long[] current = slots;
+        if ((id + 1) * WORDS > current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (scratch[0] == FALLBACK_MARKER) {
+            if (fallbackCount == fallback.length) fallback = Arrays.copyOf(fallback, fallbackCount * 2);
+            fallback[fallbackCount] = token;
+            scratch[1] = fallbackCount++;
+        }
+        System.arraycopy(scratch, 0, current, id * WORDS, WORDS);
+        slots = current;
+        _insert(table, id, scratch, token);
+        // Publishing count makes the new slot visible to get().
+        count = id + 1;
+
+        if (count * 2 > table.length) _rehash();
+        return id;
+    }
+
+    public int[] internAll(List<String> tokens) {
+        int[] ids = new int[tokens.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = intern(tokens.get(i));
+        }
+        return ids;
+    }
+
+    public String get(int id) {
+        if (id < 0 || id >= count) throw new IndexOutOfBoundsException("Unknown token id " + id);
+        long[] current = slots;
+        int offset = id * WORDS;
+        if (current[offset] == FALLBACK_MARKER) {
+            return fallback[(int) current[offset + 1]];
+        }
+        return PushTokenCodec.decode(current, offset);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return a read-only list that renders the tokens behind {@code ids} on access
+     */
+    public List<String> asList(int[] ids) {
+        return new TokenList(this, ids);
+    }
+
+    private boolean _matches(int id, String token) {
+        int offset = id * WORDS;
+        if (scratch[0] == FALLBACK_MARKER) {
+            return slots[offset] == FALLBACK_MARKER && fallback[(int) slots[offset + 1]].equals(token);
+        }
+        for (int i = 0; i < WORDS; i++) {
+            if (slots[offset + i] != scratch[i]) return false;
+        }
+        return true;
+    }
+
+    private void _rehash() {
+        int[] resized = new int[table.length * 2];
+        long[] words = new long[WORDS];
+        for (int id = 0; id < count; id++) {
+            System.arraycopy(slots, id * WORDS, words, 0, WORDS);
+            String token = words[0] == FALLBACK_MARKER ? fallback[(int) words[1]] : null;
+            _insert(resized, id, words, token);
+        }
+        table = resized;
+    }
+
+    private static void _insert(int[] table, int id, long[] words, String token) {
+        int mask = table.length - 1;
+        int i = _hash(words, token) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = id + 1;
+    }
+
+    private static int _hash(long[] words, String token) {
+        if (words[0] == FALLBACK_MARKER) return token.hashCode() * 0x9E3779B9;
+        long h = 0;
+        for (int i = 0; i < WORDS; i++) {
+            h = (h ^ words[i]) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static class TokenList extends AbstractList<String> implements RandomAccess {
+        private final PushTokenDictionary dictionary;
+        private final int[] ids;
+
+        TokenList(PushTokenDictionary dictionary, int[] ids) {
+            this.dictionary = dictionary;
+            this.ids = ids;
+        }
+
+        @Override
+        public String get(int index) {
+            return dictionary.get(ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Remembers which recipients already received which message content during one chunking pass.
+ * <p>
+ * Seen (content, token) pairs are kept in an open-addressing table of parallel arrays, so millions of
+ * recipients cost a few arrays rather than one hash node each.
+ */
+public class RecipientDeduplicator {
+    private final Map<ExpoPushMessageCustomData<?>, Integer> contentIdsByInstance = new IdentityHashMap<>();
+    private final Map<Object, Integer> contentIds = new HashMap<>();
+    private int nextContentId = 0;
+
+    private String[] tokens;
+    private int[] tokenContentIds;
+    private int[] hashes;
+    private int size = 0;
+    private long duplicateCount = 0;
+
+    public RecipientDeduplicator(int expectedRecipients) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedRecipients) * 2 - 1) << 1;
+        tokens = new String[capacity];
+        tokenContentIds = new int[capacity];
+        hashes = new int[capacity];
+    }
+
+    /**
+     * @return the same id for every message with equal {@link ExpoPushMessageCustomData#contentKey()},
+     * regardless of recipients; a message without a content key gets an id of its own
+     */
+    public int contentId(ExpoPushMessageCustomData<?> message) {
+        Integer id = contentIdsByInstance.get(message);
+        if (id == null) {
+            Object key = message.contentKey();
+            id = key != null ? contentIds.computeIfAbsent(key, k -> nextContentId++) : nextContentId++;
+            contentIdsByInstance.put(message, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return {@code true} if {@code token} has not been added with {@code contentId} before
+     */
+    public boolean add(int contentId, String token) {
+        int hash = _mix(token.hashCode() * 31 + contentId);
+        int mask = tokens.length - 1;
+        int i = hash & mask;
+        while (tokens[i] != null) {
+            if (hashes[i] == hash && tokenContentIds[i] == contentId && tokens[i].equals(token)) {
+                duplicateCount++;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        tokens[i] = token;
+        tokenContentIds[i] = contentId;
+        hashes[i] = hash;
+        if (++size * 2 > tokens.length) _grow();
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    private void _grow() {
+        String[] oldTokens = tokens;
+        int[] oldContentIds = tokenContentIds;
+        int[] oldHashes = hashes;
+        tokens = new String[oldTokens.length * 2];
+        tokenContentIds = new int[tokens.length];
+        hashes = new int[tokens.length];
+        int mask = tokens.length - 1;
+        for (int j = 0; j < oldTokens.length; j++) {
+            if (oldTokens[j] == null) continue;
+            int i = oldHashes[j] & mask;
+            while (tokens[i] != null) {
+                i = (i + 1) & mask;
+            }
+            tokens[i] = oldTokens[j];
+            tokenContentIds[i] = oldContentIds[j];
+            hashes[i] = oldHashes[j];
+        }
+    }
+
+    private static int _mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
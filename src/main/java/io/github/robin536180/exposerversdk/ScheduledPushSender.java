@@ -0,0 +1,429 @@
+package io.github.robin536180.exposerversdk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.robin536180.exposerversdk.helpers.MappedRecordFile;
+import io.github.robin536180.exposerversdk.metrics.PushMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends messages at a later time.
+ * <p>
+ * Scheduled messages wait in a heap ordered by send time. Every {@code tickMillis} all messages that
+ * have come due are taken together, merged by content with
+ * {@link PushClientCustomData#coalescePushNotifications(List)} and chunked, so a spike of messages due
+ * at the same moment goes out as full chunks. A message's ttl counts from the tick that sends it.
+ * <p>
+ * A message is only done once Expo has answered for all of its recipients, which may be spread over
+ * several chunks. Recipients whose request fails in transit or is rate limited go back into the heap as
+ * the same message with only those recipients, and are retried a tick later, waiting twice as long after
+ * every further failure up to {@link #MAX_RETRY_BACKOFF_FACTOR} ticks.
+ * <p>
+ * With a file, scheduled messages survive a restart: {@link #schedule(ExpoPushMessageCustomData, long)}
+ * returns once the message is on disk, and messages that were due while the process was down are sent
+ * on the first tick.
+ */
+public class ScheduledPushSender<TPushMessage extends ExpoPushMessageCustomData<?>> implements DeferredMessageSink<TPushMessage>, Closeable {
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+    public static final int COMPACTION_THRESHOLD = 10_000;
+    public static final int MAX_RETRY_BACKOFF_FACTOR = 64;
+
+    private static final byte RECORD_SCHEDULE = 1;
+    private static final byte RECORD_DONE = 2;
+
+    /**
+     * Told about the outcome of every batch of due messages. Failures that are retried are not reported.
+     */
+    public interface DeliveryListener<TPushMessage> {
+        public void onSent(List<ExpoPushMessageTicketPair<TPushMessage>> pairs);
+
+        public void onFailed(List<TPushMessage> messages, Throwable throwable);
+    }
+
+    private final PushClientCustomData<TPushMessage> client;
+    private final Class<TPushMessage> messageClass;
+    private final Path path;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PriorityQueue<Entry<TPushMessage>> heap = new PriorityQueue<>();
+    private final Map<Long, Entry<TPushMessage>> scheduled = new HashMap<>();
+    private final ScheduledThreadPoolExecutor ticker;
+    private final long tickMillis;
+    private final AtomicLong tickFailures = new AtomicLong();
+    private volatile Throwable lastTickFailure = null;
+    private MappedRecordFile file;
+    private long nextId = 1;
+    private long doneSinceCompaction = 0;
+
+    public DeliveryListener<TPushMessage> deliveryListener = null;
+
+    public ScheduledPushSender(PushClientCustomData<TPushMessage> client) throws IOException {
+        this(client, null, null, DEFAULT_TICK_MILLIS);
+    }
+
+    public ScheduledPushSender(PushClientCustomData<TPushMessage> client, Class<TPushMessage> messageClass, Path path) throws IOException {
+        this(client, messageClass, path, DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * @param path file to keep scheduled messages in, or {@code null} to only keep them in memory
+     */
+    public ScheduledPushSender(PushClientCustomData<TPushMessage> client, Class<TPushMessage> messageClass, Path path, long tickMillis) throws IOException {
+        this.client = client;
+        this.messageClass = messageClass;
+        this.path = path;
+        this.tickMillis = tickMillis;
+        if (path != null) {
+            file = new MappedRecordFile(path);
+            file.forEach((record, offset) -> _replay(record));
+            heap.addAll(scheduled.values());
+        }
+
+        ticker = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "expo-scheduled-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::_tickQuietly, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param sendAtMillis milliseconds since the epoch
+     * @return an id for {@link #cancel(long)}
+     */
+    public long schedule(TPushMessage message, long sendAtMillis) throws IOException {
+        return scheduleAll(Collections.singletonList(message), sendAtMillis).get(0);
+    }
+
+    @Override
+    public void defer(TPushMessage message, long notBeforeMillis) {
+        deferAll(Collections.singletonList(message), notBeforeMillis);
+    }
+
+    @Override
+    public void deferAll(List<TPushMessage> messages, long notBeforeMillis) {
+        try {
+            scheduleAll(messages, notBeforeMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized List<Long> scheduleAll(List<TPushMessage> messages, long sendAtMillis) throws IOException {
+        List<Long> ids = new ArrayList<>(messages.size());
+        List<byte[]> records = new ArrayList<>(messages.size());
+        List<Entry<TPushMessage>> entries = new ArrayList<>(messages.size());
+        for (TPushMessage message : messages) {
+            Entry<TPushMessage> entry = new Entry<>(nextId++, sendAtMillis, message);
+            if (file != null) records.add(_encodeSchedule(entry));
+            entries.add(entry);
+            ids.add(entry.id);
+        }
+        if (file != null) {
+            file.appendAll(records);
+            file.force();
+        }
+        for (Entry<TPushMessage> entry : entries) {
+            heap.add(entry);
+            scheduled.put(entry.id, entry);
+        }
+        return ids;
+    }
+
+    /**
+     * @return {@code false} if the message was already sent or cancelled
+     */
+    public synchronized boolean cancel(long id) throws IOException {
+        // The heap entry stays behind and is skipped when it comes due.
+        Entry<TPushMessage> entry = scheduled.remove(id);
+        if (entry == null) return false;
+        _markDone(Collections.singletonList(entry));
+        return true;
+    }
+
+    public synchronized int size() {
+        return scheduled.size();
+    }
+
+    /**
+     * Sends every message due at {@code nowMillis}; normally called by the ticker thread. Messages are
+     * marked as sent when their request completes.
+     */
+    public void tick(long nowMillis) throws IOException {
+        // Due entries stay in `scheduled`, and in the file, until their request has an outcome.
+        List<Entry<TPushMessage>> due = new ArrayList<>();
+        synchronized (this) {
+            while (!heap.isEmpty() && heap.peek().sendAt <= nowMillis) {
+                Entry<TPushMessage> entry = heap.poll();
+                if (scheduled.get(entry.id) == entry) due.add(entry);
+            }
+        }
+        if (due.isEmpty()) return;
+
+        Map<TPushMessage, Entry<TPushMessage>> entries = new IdentityHashMap<>();
+        List<TPushMessage> messages = new ArrayList<>(due.size());
+        for (Entry<TPushMessage> entry : due) {
+            entry.message.setEnqueuedAt(nowMillis);
+            entries.put(entry.message, entry);
+            messages.add(entry.message);
+        }
+
+        List<List<TPushMessage>> chunks = new ArrayList<>();
+        List<Map<Entry<TPushMessage>, List<String>>> chunkRecipients = new ArrayList<>();
+        CoalescedPushMessages<TPushMessage> coalesced;
+        try {
+            coalesced = client.coalescePushNotifications(messages);
+            for (List<TPushMessage> chunk : client.chunkPushNotifications(coalesced.getMessages())) {
+                // The recipients of each original message in this chunk; a message can span several chunks.
+                Map<Entry<TPushMessage>, List<String>> recipients = new IdentityHashMap<>();
+                for (TPushMessage sent : chunk) {
+                    for (String recipient : sent.getTo()) {
+                        Entry<TPushMessage> entry = entries.get(coalesced.getOriginalMessage(sent, recipient));
+                        recipients.computeIfAbsent(entry, e -> new ArrayList<>()).add(recipient);
+                    }
+                }
+                chunks.add(chunk);
+                chunkRecipients.add(recipients);
+            }
+        } catch (RuntimeException e) {
+            // Nothing was sent; everything is due again on the next tick.
+            synchronized (this) {
+                heap.addAll(due);
+            }
+            throw e;
+        }
+
+        // Messages that chunking left out entirely, e.g. expired ones or dead tokens, are done at once.
+        List<Entry<TPushMessage>> leftOut = new ArrayList<>();
+        synchronized (this) {
+            for (Map<Entry<TPushMessage>, List<String>> recipients : chunkRecipients) {
+                for (Entry<TPushMessage> entry : recipients.keySet()) {
+                    entry.pendingChunks++;
+                }
+            }
+            for (Entry<TPushMessage> entry : due) {
+                if (entry.pendingChunks == 0) leftOut.add(entry);
+            }
+        }
+        _done(leftOut);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            List<TPushMessage> chunk = chunks.get(i);
+            Map<Entry<TPushMessage>, List<String>> recipients = chunkRecipients.get(i);
+            CompletableFuture<List<ExpoPushTicket>> request;
+            try {
+                request = client.sendPushNotificationsAsync(chunk);
+            } catch (RuntimeException e) {
+                request = new CompletableFuture<>();
+                request.completeExceptionally(e);
+            }
+            request.whenComplete((tickets, throwable) -> _onComplete(recipients, chunk, coalesced, tickets, throwable));
+        }
+    }
+
+    private void _onComplete(Map<Entry<TPushMessage>, List<String>> recipients, List<TPushMessage> chunk, CoalescedPushMessages<TPushMessage> coalesced,
+                             List<ExpoPushTicket> tickets, Throwable throwable) {
+        boolean retry = throwable != null && PushClientCustomData._isRetryable(throwable);
+        try {
+            if (retry) client.pushMetrics.retried(PushMetrics.Operation.SEND, recipients.size());
+            List<Entry<TPushMessage>> finished = new ArrayList<>();
+            synchronized (this) {
+                for (Map.Entry<Entry<TPushMessage>, List<String>> e : recipients.entrySet()) {
+                    Entry<TPushMessage> entry = e.getKey();
+                    if (retry) entry.failedRecipients.addAll(e.getValue());
+                    if (--entry.pendingChunks == 0) finished.add(entry);
+                }
+            }
+            _finish(finished);
+        } catch (IOException | RuntimeException e) {
+            _tickFailed(e);
+        }
+        if (retry) return;
+
+        DeliveryListener<TPushMessage> listener = deliveryListener;
+        if (listener == null) return;
+        if (throwable != null) {
+            List<TPushMessage> originals = new ArrayList<>(recipients.size());
+            for (Entry<TPushMessage> entry : recipients.keySet()) {
+                originals.add(entry.message);
+            }
+            listener.onFailed(originals, throwable);
+        } else {
+            listener.onSent(coalesced.zipOriginalMessagesTickets(chunk, tickets));
+        }
+    }
+
+    // Entries whose chunks have all completed are done, or scheduled again with the recipients that failed.
+    private synchronized void _finish(List<Entry<TPushMessage>> finished) throws IOException {
+        List<Entry<TPushMessage>> done = new ArrayList<>();
+        List<Entry<TPushMessage>> retries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Entry<TPushMessage> entry : finished) {
+            if (entry.failedRecipients.isEmpty()) {
+                done.add(entry);
+            } else if (scheduled.get(entry.id) == entry) {
+                TPushMessage message = PushClientCustomData._copy(entry.message);
+                message.setTo(new ArrayList<>(entry.failedRecipients));
+                Entry<TPushMessage> retry = new Entry<>(entry.id, now + _retryDelay(entry.attempts), message);
+                retry.attempts = entry.attempts + 1;
+                retries.add(retry);
+            }
+        }
+        if (!retries.isEmpty()) {
+            // Replaces the entry on replay, so recipients that were sent are not sent again after a restart.
+            if (file != null) {
+                List<byte[]> records = new ArrayList<>(retries.size());
+                for (Entry<TPushMessage> retry : retries) {
+                    records.add(_encodeSchedule(retry));
+                }
+                file.appendAll(records);
+                file.force();
+            }
+            for (Entry<TPushMessage> retry : retries) {
+                scheduled.put(retry.id, retry);
+                heap.add(retry);
+            }
+        }
+        _done(done);
+    }
+
+    private long _retryDelay(int attempts) {
+        return tickMillis * Math.min(1L << Math.min(attempts, 30), MAX_RETRY_BACKOFF_FACTOR);
+    }
+
+    private synchronized void _done(List<Entry<TPushMessage>> entries) throws IOException {
+        List<Entry<TPushMessage>> done = new ArrayList<>(entries.size());
+        for (Entry<TPushMessage> entry : entries) {
+            // A message cancelled while its request was in flight is already marked done.
+            if (scheduled.remove(entry.id, entry)) done.add(entry);
+        }
+        if (!done.isEmpty()) _markDone(done);
+    }
+
+    /**
+     * @return how often a tick or the completion of its requests threw; such messages stay scheduled
+     */
+    public long getTickFailureCount() {
+        return tickFailures.get();
+    }
+
+    /**
+     * @return the last exception counted in {@link #getTickFailureCount()}, or {@code null}
+     */
+    public Throwable getLastTickFailure() {
+        return lastTickFailure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ticker.shutdownNow();
+        synchronized (this) {
+            if (file != null) file.close();
+        }
+    }
+
+    private void _tickQuietly() {
+        try {
+            tick(System.currentTimeMillis());
+        } catch (IOException | RuntimeException e) {
+            _tickFailed(e);
+        }
+    }
+
+    // Messages that could not be marked as sent are sent again after a restart.
+    private void _tickFailed(Throwable e) {
+        tickFailures.incrementAndGet();
+        lastTickFailure = e;
+    }
+
+    private void _markDone(List<Entry<TPushMessage>> entries) throws IOException {
+        if (file == null) return;
+        List<byte[]> records = new ArrayList<>(entries.size());
+        for (Entry<TPushMessage> entry : entries) {
+            records.add(ByteBuffer.allocate(1 + 8).put(RECORD_DONE).putLong(entry.id).array());
+        }
+        file.appendAll(records);
+        file.force();
+        doneSinceCompaction += entries.size();
+        if (doneSinceCompaction >= COMPACTION_THRESHOLD && doneSinceCompaction > scheduled.size()) {
+            _compact();
+        }
+    }
+
+    // Rewrites the file so it only holds messages that are still scheduled.
+    private void _compact() throws IOException {
+        Path compacted = Paths.get(path + ".compact");
+        Files.deleteIfExists(compacted);
+        try (MappedRecordFile target = new MappedRecordFile(compacted)) {
+            List<byte[]> records = new ArrayList<>(scheduled.size());
+            for (Entry<TPushMessage> entry : scheduled.values()) {
+                records.add(_encodeSchedule(entry));
+            }
+            target.appendAll(records);
+            target.force();
+        }
+
+        file.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        file = new MappedRecordFile(path);
+        doneSinceCompaction = 0;
+    }
+
+    private byte[] _encodeSchedule(Entry<TPushMessage> entry) throws IOException {
+        byte[] body = mapper.writeValueAsBytes(entry.message);
+        return ByteBuffer.allocate(1 + 8 + 8 + body.length)
+                .put(RECORD_SCHEDULE).putLong(entry.id).putLong(entry.sendAt).put(body).array();
+    }
+
+    private void _replay(ByteBuffer record) {
+        byte type = record.get();
+        long id = record.getLong();
+        nextId = Math.max(nextId, id + 1);
+        if (type == RECORD_DONE) {
+            scheduled.remove(id);
+            return;
+        }
+
+        long sendAt = record.getLong();
+        byte[] body = new byte[record.remaining()];
+        record.get(body);
+        try {
+            scheduled.put(id, new Entry<>(id, sendAt, mapper.readValue(body, messageClass)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Entry<TPushMessage> implements Comparable<Entry<TPushMessage>> {
+        private final long id;
+        private final long sendAt;
+        private final TPushMessage message;
+        private int attempts = 0;
+        // Guarded by the sender while the entry's chunks are in flight.
+        private int pendingChunks = 0;
+        private final List<String> failedRecipients = new ArrayList<>();
+
+        Entry(long id, long sendAt, TPushMessage message) {
+            this.id = id;
+            this.sendAt = sendAt;
+            this.message = message;
+        }
+
+        @Override
+        public int compareTo(Entry<TPushMessage> other) {
+            int bySendAt = Long.compare(sendAt, other.sendAt);
+            return bySendAt != 0 ? bySendAt : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the recipients and request bytes in flight for
+ * {@link PushClientCustomData#submitPushNotifications(java.util.List, long, TimeUnit)}, so producers
+ * block once the limits are reached and continue as requests complete.
+ * <p>
+ * A single chunk larger than a limit takes the whole limit rather than blocking forever. Bytes are
+ * counted as characters of the request JSON, which is close for mostly ASCII payloads.
+ */
+public class SendBudget {
+    private final int maxRecipients;
+    private final int maxBytes;
+    private final Semaphore recipients;
+    private final Semaphore bytes;
+
+    public SendBudget(int maxRecipients, int maxBytes) {
+        if (maxRecipients <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("maxRecipients and maxBytes must be positive");
+        }
+        this.maxRecipients = maxRecipients;
+        this.maxBytes = maxBytes;
+        this.recipients = new Semaphore(maxRecipients, true);
+        this.bytes = new Semaphore(maxBytes, true);
+    }
+
+    /**
+     * @return {@code false} if the budget did not free up within {@code timeout}; nothing is held then
+     */
+    public boolean tryAcquire(int recipientCount, int byteCount, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int r = Math.min(recipientCount, maxRecipients);
+        int b = Math.min(byteCount, maxBytes);
+        if (!recipients.tryAcquire(r, timeout, unit)) return false;
+        try {
+            if (bytes.tryAcquire(b, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) return true;
+        } catch (InterruptedException e) {
+            recipients.release(r);
+            throw e;
+        }
+        recipients.release(r);
+        return false;
+    }
+
+    public void release(int recipientCount, int byteCount) {
+        bytes.release(Math.min(byteCount, maxBytes));
+        recipients.release(Math.min(recipientCount, maxRecipients));
+    }
+
+    public int getAvailableRecipients() {
+        return recipients.availablePermits();
+    }
+
+    public int getAvailableBytes() {
+        return bytes.availablePermits();
+    }
+}
@@ -0,0 +1,382 @@
+package io.github.robin536180.exposerversdk;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Shares one client between tenants by deficit round robin, so one tenant's bulk send cannot starve
+ * the others.
+ * <p>
+ * Every tenant has its own queue of chunks. Tenants with queued chunks take turns; each turn adds
+ * {@code weight} times {@link PushClientCustomData#PUSH_NOTIFICATION_CHUNK_LIMIT} recipients to the
+ * tenant's deficit, and chunks are sent while the deficit covers them. A request only ever carries
+ * messages of one tenant. Per tenant, the number of requests in flight, the recipients per second and
+ * the queued recipients can be limited.
+ * <p>
+ * Submitting does not lock: tenant queues are lock-free and a single thread at a time, whichever
+ * arrives first, does the scheduling while the others return.
+ * <p>
+ * {@link #close()} lets requests in flight finish and fails the futures of chunks still queued with a
+ * {@link CancellationException}.
+ */
+public class TenantDispatcher<TPushMessage extends ExpoPushMessageCustomData<?>> implements Closeable {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final int DEFAULT_TENANT_WEIGHT = 1;
+    public static final int DEFAULT_TENANT_MAX_IN_FLIGHT = 4;
+    public static final long DEFAULT_TENANT_MAX_QUEUED_RECIPIENTS = 10000000;
+
+    private final PushClientCustomData<TPushMessage> client;
+    private final int maxInFlight;
+    private final ConcurrentHashMap<String, Tenant<TPushMessage>> tenants = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Tenant<TPushMessage>> active = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+    private final ScheduledThreadPoolExecutor timer;
+    private volatile boolean closed = false;
+    private Tenant<TPushMessage> current = null;
+    // Time source of the rate limiters, replaced in tests.
+    LongSupplier nanoTime = System::nanoTime;
+
+    public TenantDispatcher(PushClientCustomData<TPushMessage> client) {
+        this(client, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public TenantDispatcher(PushClientCustomData<TPushMessage> client, int maxInFlight) {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive");
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "expo-tenant-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Sets the share and limits of {@code tenantId}; tenants that are never configured use the defaults.
+     *
+     * @param recipientsPerSecond sustained send rate, with bursts of up to one second's worth;
+     *                            {@code 0} for no limit
+     */
+    public TenantDispatcher<TPushMessage> setTenant(String tenantId, int weight, int maxInFlight, double recipientsPerSecond, long maxQueuedRecipients) {
+        if (weight <= 0 || maxInFlight <= 0 || recipientsPerSecond < 0 || maxQueuedRecipients <= 0) {
+            throw new IllegalArgumentException("Tenant limits must be positive");
+        }
+        Tenant<TPushMessage> tenant = _tenant(tenantId);
+        tenant.weight = weight;
+        tenant.maxInFlight = maxInFlight;
+        tenant.rate = recipientsPerSecond;
+        tenant.maxQueued = maxQueuedRecipients;
+        _drain();
+        return this;
+    }
+
+    /**
+     * Chunks {@code messages} and queues them for {@code tenantId}.
+     *
+     * @return the tickets, each paired with the chunked message it belongs to
+     * @throws RejectedExecutionException if the tenant's queue has no room for the messages, or the
+     *                                    dispatcher is closed
+     */
+    public CompletableFuture<List<ExpoPushMessageTicketPair<TPushMessage>>> submit(String tenantId, List<TPushMessage> messages) {
+        if (closed) throw new RejectedExecutionException("TenantDispatcher is closed");
+        Tenant<TPushMessage> tenant = _tenant(tenantId);
+        List<Chunk<TPushMessage>> submitted = new ArrayList<>();
+        long recipients = 0;
+        for (List<TPushMessage> messagesOfChunk : client.chunkPushNotifications(messages)) {
+            Chunk<TPushMessage> chunk = new Chunk<>(tenant, messagesOfChunk, client._getActualMessagesCount(messagesOfChunk));
+            submitted.add(chunk);
+            recipients += chunk.cost;
+        }
+
+        if (tenant.queuedRecipients.addAndGet(recipients) > tenant.maxQueued) {
+            tenant.queuedRecipients.addAndGet(-recipients);
+            tenant.rejected.increment();
+            throw new RejectedExecutionException("Queue of tenant " + tenantId + " is full");
+        }
+        tenant.submittedRecipients.add(recipients);
+        tenant.queue.addAll(submitted);
+        _activate(tenant);
+        _drain();
+
+        return CompletableFuture.allOf(submitted.stream().map(c -> c.tickets).toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    List<ExpoPushMessageTicketPair<TPushMessage>> pairs = new ArrayList<>();
+                    for (Chunk<TPushMessage> chunk : submitted) {
+                        pairs.addAll(PushDispatcher._zipRecipientsTickets(chunk.messages, chunk.tickets.join()));
+                    }
+                    return pairs;
+                });
+    }
+
+    /**
+     * @return a snapshot of the counters of {@code tenantId}, or {@code null} for a tenant that was never
+     * configured or submitted to
+     */
+    public TenantStats getStats(String tenantId) {
+        Tenant<TPushMessage> tenant = tenants.get(tenantId);
+        if (tenant == null) return null;
+        return new TenantStats(tenant.submittedRecipients.sum(), tenant.queuedRecipients.get(), tenant.inFlight.get(),
+                tenant.sentRecipients.sum(), tenant.failedRecipients.sum(), tenant.rejected.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        _drain();
+    }
+
+    private Tenant<TPushMessage> _tenant(String tenantId) {
+        return tenants.computeIfAbsent(tenantId, id -> new Tenant<>());
+    }
+
+    private void _activate(Tenant<TPushMessage> tenant) {
+        if (tenant.active.compareAndSet(false, true)) {
+            activeCount.incrementAndGet();
+            active.add(tenant);
+        }
+    }
+
+    private void _drain() {
+        if (wip.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            _schedule();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    // Runs on one thread at a time, so the deficit and rate limiter state of tenants needs no locking.
+    private void _schedule() {
+        if (closed) {
+            _cancelQueued();
+            return;
+        }
+        long retryNanos = Long.MAX_VALUE;
+        int idle = 0;
+        while (inFlight.get() < maxInFlight && idle <= activeCount.get()) {
+            // A tenant whose turn was cut short by the global limit continues it before the next one starts.
+            Tenant<TPushMessage> tenant = current;
+            boolean resumed = tenant != null;
+            current = null;
+            if (tenant == null) tenant = active.poll();
+            if (tenant == null) break;
+
+            Chunk<TPushMessage> head = tenant.queue.peek();
+            if (head == null) {
+                _deactivate(tenant);
+                continue;
+            }
+
+            long now = nanoTime.getAsLong();
+            long wait = tenant.bucket.waitNanos(tenant.rate, head.cost, now);
+            if (tenant.inFlight.get() >= tenant.maxInFlight || wait > 0) {
+                if (wait > 0) retryNanos = Math.min(retryNanos, wait);
+                active.add(tenant);
+                idle++;
+                continue;
+            }
+
+            if (!resumed) tenant.deficit += (long) tenant.weight * client.PUSH_NOTIFICATION_CHUNK_LIMIT;
+            boolean sent = false;
+            Chunk<TPushMessage> chunk;
+            while ((chunk = tenant.queue.peek()) != null
+                    && chunk.cost <= tenant.deficit
+                    && tenant.inFlight.get() < tenant.maxInFlight
+                    && tenant.bucket.waitNanos(tenant.rate, chunk.cost, now) == 0) {
+                if (inFlight.get() >= maxInFlight) {
+                    current = tenant;
+                    break;
+                }
+                tenant.queue.poll();
+                tenant.deficit -= chunk.cost;
+                tenant.bucket.take(tenant.rate, chunk.cost, now);
+                _send(chunk);
+                sent = true;
+            }
+            if (current == tenant) break;
+
+            if (tenant.queue.isEmpty()) {
+                _deactivate(tenant);
+            } else {
+                active.add(tenant);
+            }
+            idle = sent ? 0 : idle + 1;
+        }
+
+        if (retryNanos != Long.MAX_VALUE && retryScheduled.compareAndSet(false, true) && !timer.isShutdown()) {
+            timer.schedule(() -> {
+                retryScheduled.set(false);
+                _drain();
+            }, retryNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void _cancelQueued() {
+        current = null;
+        for (Tenant<TPushMessage> tenant : tenants.values()) {
+            Chunk<TPushMessage> chunk;
+            while ((chunk = tenant.queue.poll()) != null) {
+                tenant.queuedRecipients.addAndGet(-chunk.cost);
+                chunk.tickets.completeExceptionally(new CancellationException("TenantDispatcher was closed"));
+            }
+        }
+    }
+
+    private void _deactivate(Tenant<TPushMessage> tenant) {
+        tenant.deficit = 0;
+        tenant.active.set(false);
+        activeCount.decrementAndGet();
+        // A submit may have queued chunks after the queue was seen empty but before the flag was cleared.
+        if (!tenant.queue.isEmpty()) _activate(tenant);
+    }
+
+    private void _send(Chunk<TPushMessage> chunk) {
+        Tenant<TPushMessage> tenant = chunk.tenant;
+        tenant.queuedRecipients.addAndGet(-chunk.cost);
+        tenant.inFlight.incrementAndGet();
+        inFlight.incrementAndGet();
+
+        CompletableFuture<List<ExpoPushTicket>> request;
+        try {
+            request = client.sendPushNotificationsAsync(chunk.messages);
+        } catch (RuntimeException e) {
+            // Not only PushNotificationException: anything thrown here must not leave the scheduler stuck.
+            request = new CompletableFuture<>();
+            request.completeExceptionally(e);
+        }
+        request.whenComplete((tickets, throwable) -> {
+            tenant.inFlight.decrementAndGet();
+            inFlight.decrementAndGet();
+            if (throwable != null) {
+                tenant.failedRecipients.add(chunk.cost);
+                chunk.tickets.completeExceptionally(throwable);
+            } else {
+                tenant.sentRecipients.add(chunk.cost);
+                chunk.tickets.complete(tickets);
+            }
+            _drain();
+        });
+    }
+
+    public static class TenantStats {
+        private final long submittedRecipients;
+        private final long queuedRecipients;
+        private final int inFlight;
+        private final long sentRecipients;
+        private final long failedRecipients;
+        private final long rejectedSubmissions;
+
+        TenantStats(long submittedRecipients, long queuedRecipients, int inFlight, long sentRecipients, long failedRecipients, long rejectedSubmissions) {
+            this.submittedRecipients = submittedRecipients;
+            this.queuedRecipients = queuedRecipients;
+            this.inFlight = inFlight;
+            this.sentRecipients = sentRecipients;
+            this.failedRecipients = failedRecipients;
+            this.rejectedSubmissions = rejectedSubmissions;
+        }
+
+        public long getSubmittedRecipients() {
+            return submittedRecipients;
+        }
+
+        public long getQueuedRecipients() {
+            return queuedRecipients;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        public long getSentRecipients() {
+            return sentRecipients;
+        }
+
+        public long getFailedRecipients() {
+            return failedRecipients;
+        }
+
+        public long getRejectedSubmissions() {
+            return rejectedSubmissions;
+        }
+    }
+
+    private static class Tenant<TPushMessage> {
+        private volatile int weight = DEFAULT_TENANT_WEIGHT;
+        private volatile int maxInFlight = DEFAULT_TENANT_MAX_IN_FLIGHT;
+        private volatile double rate = 0;
+        private volatile long maxQueued = DEFAULT_TENANT_MAX_QUEUED_RECIPIENTS;
+
+        private final ConcurrentLinkedQueue<Chunk<TPushMessage>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean active = new AtomicBoolean();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong queuedRecipients = new AtomicLong();
+        private final LongAdder submittedRecipients = new LongAdder();
+        private final LongAdder sentRecipients = new LongAdder();
+        private final LongAdder failedRecipients = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final TokenBucket bucket = new TokenBucket();
+        private long deficit = 0;
+    }
+
+    // Holds up to one second's worth of tokens at the configured rate.
+    private static class TokenBucket {
+        private boolean started = false;
+        private double tokens = 0;
+        private long refilledAt = 0;
+
+        long waitNanos(double rate, long cost, long now) {
+            if (rate <= 0) return 0;
+            _refill(rate, now);
+            // A chunk larger than the burst only has to wait for a full bucket.
+            double needed = Math.min(cost, rate) - tokens;
+            return needed <= 0 ? 0 : (long) Math.ceil(needed / rate * 1e9);
+        }
+
+        void take(double rate, long cost, long now) {
+            if (rate <= 0) return;
+            _refill(rate, now);
+            tokens -= cost;
+        }
+
+        private void _refill(double rate, long now) {
+            if (!started) {
+                started = true;
+                tokens = rate;
+            } else {
+                tokens = Math.min(rate, tokens + (now - refilledAt) / 1e9 * rate);
+            }
+            refilledAt = now;
+        }
+    }
+
+    private static class Chunk<TPushMessage> {
+        private final Tenant<TPushMessage> tenant;
+        private final List<TPushMessage> messages;
+        private final long cost;
+        private final CompletableFuture<List<ExpoPushTicket>> tickets = new CompletableFuture<>();
+
+        Chunk(Tenant<TPushMessage> tenant, List<TPushMessage> messages, long cost) {
+            this.tenant = tenant;
+            this.messages = messages;
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.helpers.MappedRecordFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent record of push tickets whose receipts have not been fetched yet.
+ * <p>
+ * Tickets are journaled when {@link PushClientCustomData#sendPushNotificationsAsync(List)} returns
+ * and acknowledged when {@link PushClientCustomData#getPushNotificationReceiptsAsync(List)} returns
+ * their receipts. After a restart, {@link #getPendingTicketIds()} gives back every ticket id that is
+ * still waiting for a receipt, together with the recipient it was sent to.
+ * <p>
+ * Records are buffered in memory and written to the mapped file in batches, either when
+ * {@link #BATCH_SIZE} records are waiting or every {@code flushIntervalMillis}.
+ */
+public class TicketJournal implements Closeable {
+    public static final int BATCH_SIZE = 512;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    public static final int COMPACTION_THRESHOLD = 10_000;
+
+    private static final byte RECORD_TICKET = 1;
+    private static final byte RECORD_ACK = 2;
+
+    private final Path path;
+    private MappedRecordFile file;
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private final List<byte[]> batch = new ArrayList<>();
+    private final ScheduledExecutorService flusher;
+    private long acknowledgedSinceCompaction = 0;
+
+    public TicketJournal(Path path) throws IOException {
+        this(path, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public TicketJournal(Path path, long flushIntervalMillis) throws IOException {
+        this.path = path;
+        file = new MappedRecordFile(path);
+        file.forEach((record, offset) -> _replay(record));
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "expo-ticket-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                // Retried on the next tick; records stay in the batch.
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void record(String ticketId, long sentAt, String correlation) {
+        Entry entry = new Entry(ticketId, sentAt, correlation);
+        synchronized (this) {
+            if (pending.putIfAbsent(ticketId, entry) != null) return;
+            batch.add(_encodeTicket(entry));
+            if (batch.size() >= BATCH_SIZE) _flushQuietly();
+        }
+    }
+
+    public void acknowledge(Collection<String> ticketIds) {
+        synchronized (this) {
+            for (String ticketId : ticketIds) {
+                if (pending.remove(ticketId) == null) continue;
+                batch.add(_encodeAck(ticketId));
+                acknowledgedSinceCompaction++;
+            }
+            if (batch.size() >= BATCH_SIZE) _flushQuietly();
+        }
+    }
+
+    public synchronized List<String> getPendingTicketIds() {
+        return new ArrayList<>(pending.keySet());
+    }
+
+    public synchronized List<Entry> getPendingTickets() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized Entry getPendingTicket(String ticketId) {
+        return pending.get(ticketId);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized void flush() throws IOException {
+        if (batch.isEmpty()) return;
+        file.appendAll(batch);
+        file.force();
+        batch.clear();
+
+        if (acknowledgedSinceCompaction >= COMPACTION_THRESHOLD && acknowledgedSinceCompaction > pending.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the journal so it only holds tickets that are still pending.
+     */
+    public synchronized void compact() throws IOException {
+        file.appendAll(batch);
+        batch.clear();
+
+        Path compacted = Paths.get(path + ".compact");
+        Files.deleteIfExists(compacted);
+        try (MappedRecordFile target = new MappedRecordFile(compacted)) {
+            List<byte[]> records = new ArrayList<>(pending.size());
+            for (Entry entry : pending.values()) {
+                records.add(_encodeTicket(entry));
+            }
+            target.appendAll(records);
+        }
+
+        file.close();
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        file = new MappedRecordFile(path);
+        acknowledgedSinceCompaction = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        synchronized (this) {
+            flush();
+            file.close();
+        }
+    }
+
+    private void _flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void _replay(ByteBuffer record) {
+        byte type = record.get();
+        if (type == RECORD_TICKET) {
+            long sentAt = record.getLong();
+            String ticketId = _readString(record);
+            String correlation = _readString(record);
+            pending.put(ticketId, new Entry(ticketId, sentAt, correlation));
+        } else if (type == RECORD_ACK) {
+            if (pending.remove(_readString(record)) != null) acknowledgedSinceCompaction++;
+        }
+    }
+
+    private static byte[] _encodeTicket(Entry entry) {
+        byte[] id = entry.ticketId.getBytes(StandardCharsets.UTF_8);
+        byte[] correlation = entry.correlation == null ? null : entry.correlation.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 4 + id.length + 4 + (correlation == null ? 0 : correlation.length));
+        buffer.put(RECORD_TICKET).putLong(entry.sentAt);
+        _writeBytes(buffer, id);
+        _writeBytes(buffer, correlation);
+        return buffer.array();
+    }
+
+    private static byte[] _encodeAck(String ticketId) {
+        byte[] id = ticketId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + id.length);
+        buffer.put(RECORD_ACK);
+        _writeBytes(buffer, id);
+        return buffer.array();
+    }
+
+    private static void _writeBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String _readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static class Entry {
+        private final String ticketId;
+        private final long sentAt;
+        private final String correlation;
+
+        public Entry(String ticketId, long sentAt, String correlation) {
+            this.ticketId = ticketId;
+            this.sentAt = sentAt;
+            this.correlation = correlation;
+        }
+
+        public String getTicketId() {
+            return ticketId;
+        }
+
+        public long getSentAt() {
+            return sentAt;
+        }
+
+        /**
+         * The recipient the ticket was issued for, when the client could match it.
+         */
+        public String getCorrelation() {
+            return correlation;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.robin536180.exposerversdk;
+
+import java.util.Collection;
+
+/**
+ * Receives push tokens that Expo reported as {@code DeviceNotRegistered}, so they can be removed from
+ * the application's own storage. Wrap an implementation in a {@link BatchingTokenInvalidationSink} to
+ * turn single invalidations into a few bulk updates.
+ */
+public interface TokenInvalidationSink {
+    public void invalidate(Collection<String> tokens);
+}
@@ -1,5 +1,8 @@
 package io.github.robin536180.exposerversdk.helpers;
 
+import io.github.robin536180.exposerversdk.ChunkTiming;
+import io.github.robin536180.exposerversdk.metrics.PushMetrics;
+
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -12,14 +15,25 @@ import java.util.concurrent.Executors;
 
 public class DefaultPushServerResolver implements PushServerResolver {
     private final ExecutorService threadPool = Executors.newCachedThreadPool();
+    public PushMetrics pushMetrics = PushMetrics.NOOP;
 
     public CompletableFuture<String> postAsync(URL url, String json) throws CompletionException {
+        return postAsync(url, json, null);
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(URL url, String json, ChunkTiming timing) throws CompletionException {
         String finalJson = json;
 
         CompletableFuture<String> retCompletableFuture
                 = new CompletableFuture<>();
 
+        long submitted = System.nanoTime();
         threadPool.submit(() -> {
+            PushMetrics metrics = pushMetrics;
+            long start = System.nanoTime();
+            long requestBytes = 0;
+            _setPhase(timing, ChunkTiming.Phase.QUEUE_WAIT, start - submitted);
             HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
             try {
                 urlConnection.setRequestMethod("POST");
@@ -27,20 +41,29 @@ public class DefaultPushServerResolver implements PushServerResolver {
                 urlConnection.setRequestProperty("Accept", "application/json");
                 urlConnection.setDoOutput(true);
 
+                urlConnection.connect();
+                long connected = System.nanoTime();
+                _setPhase(timing, ChunkTiming.Phase.CONNECT, connected - start);
+
                 try (OutputStream os = urlConnection.getOutputStream()) {
                     byte[] input = finalJson.getBytes("utf-8");
+                    requestBytes = input.length;
                     os.write(input, 0, input.length);
                 }
 
                 StringBuilder sb = new StringBuilder();
                 try (InputStream is = urlConnection.getInputStream()) {
+                    long headers = System.nanoTime();
+                    _setPhase(timing, ChunkTiming.Phase.SERVER, headers - connected);
                     BufferedReader in = new BufferedReader(new InputStreamReader(is));
 
                     String inputLine;
                     while ((inputLine = in.readLine()) != null)
                         sb.append(inputLine);
+                    _setPhase(timing, ChunkTiming.Phase.RESPONSE, System.nanoTime() - headers);
                 }
 
+                metrics.httpExchange(System.nanoTime() - start, requestBytes, sb.length(), true);
                 retCompletableFuture.complete(sb.toString());
             } catch (IOException e) {
                 StringBuilder sb = new StringBuilder();
@@ -52,8 +75,10 @@ public class DefaultPushServerResolver implements PushServerResolver {
                         while ((inputLine = in.readLine()) != null)
                             sb.append(inputLine);
 
+                        metrics.httpExchange(System.nanoTime() - start, requestBytes, sb.length(), false);
                         retCompletableFuture.complete(sb.toString());
                     } else {
+                        metrics.httpExchange(System.nanoTime() - start, requestBytes, 0, false);
                         retCompletableFuture.completeExceptionally(e);
                     }
                 } catch (Throwable t) {
@@ -69,4 +94,8 @@ public class DefaultPushServerResolver implements PushServerResolver {
         return retCompletableFuture;
     }
 
+    private static void _setPhase(ChunkTiming timing, ChunkTiming.Phase phase, long nanos) {
+        if (timing != null) timing.set(phase, nanos);
+    }
+
 }
@@ -0,0 +1,132 @@
+package io.github.robin536180.exposerversdk.helpers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Append-only file of length-prefixed records, written through a memory mapping.
+ * <p>
+ * Each record is laid out as {@code [int length][payload]}. The length is written after the
+ * payload, so a record that was only partially written when the process died is never read
+ * back: scanning stops at the first zero length. The mapping grows by doubling, which limits a
+ * single file to 1GB.
+ */
+public class MappedRecordFile implements Closeable {
+    public static final int DEFAULT_INITIAL_CAPACITY = 1 << 20;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position = 0;
+
+    public MappedRecordFile(Path path) throws IOException {
+        this(path, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public MappedRecordFile(Path path, int initialCapacity) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) Math.max(Math.min(channel.size(), MAX_CAPACITY), initialCapacity);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        while (position + 4 <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 4 + length > buffer.capacity()) break;
+            position += 4 + length;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized int size() {
+        return position;
+    }
+
+    /**
+     * @return the offset of the new record, usable with {@link #read(int)}
+     */
+    public synchronized int append(byte[] payload) throws IOException {
+        ensureCapacity(4 + payload.length);
+        return _write(payload);
+    }
+
+    public synchronized int[] appendAll(List<byte[]> payloads) throws IOException {
+        int required = 0;
+        for (byte[] payload : payloads) {
+            required += 4 + payload.length;
+        }
+        ensureCapacity(required);
+        int[] offsets = new int[payloads.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = _write(payloads.get(i));
+        }
+        return offsets;
+    }
+
+    /**
+     * Calls {@code consumer} with a read-only view and the offset of every complete record, in append order.
+     */
+    public synchronized void forEach(ObjIntConsumer<ByteBuffer> consumer) {
+        int offset = 0;
+        while (offset < position) {
+            consumer.accept(read(offset), offset);
+            offset += 4 + buffer.getInt(offset);
+        }
+    }
+
+    public synchronized ByteBuffer read(int offset) {
+        int length = buffer.getInt(offset);
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset + 4).limit(offset + 4 + length);
+        return record.slice().asReadOnlyBuffer();
+    }
+
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int _write(byte[] payload) {
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("Records must not be empty");
+        }
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + 4);
+        target.put(payload);
+        // Publish the record only once its payload is in place.
+        buffer.putInt(position, payload.length);
+        int offset = position;
+        position += 4 + payload.length;
+        return offset;
+    }
+
+    private void ensureCapacity(int required) throws IOException {
+        // Keep room for the zero length that terminates the scan.
+        long needed = (long) position + required + 4;
+        if (needed <= buffer.capacity()) return;
+        if (needed > MAX_CAPACITY) {
+            throw new IOException("Record file " + path + " exceeds " + MAX_CAPACITY + " bytes");
+        }
+        long capacity = buffer.capacity();
+        while (capacity < needed) {
+            capacity = Math.min(capacity * 2, MAX_CAPACITY);
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.robin536180.exposerversdk.helpers;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * File format of {@link RecordingPushServerResolver} and {@link ReplayPushServerResolver}.
+ * <p>
+ * A gzip stream of a header ({@code "EXPOCAP"}, version byte) followed by one record per exchange:
+ * {@code [byte kind][varlong startNanos][varlong latencyNanos][bytes path][bytes request][bytes response]},
+ * where {@code bytes} is a varint length and UTF-8 data, {@code startNanos} counts from the start of the
+ * recording, and a failed exchange stores the error message as its response. Records are in completion
+ * order. JSON compresses well, so captures are typically a tenth of the traffic.
+ */
+public final class PushCapture {
+    private static final byte[] MAGIC = "EXPOCAP".getBytes(StandardCharsets.US_ASCII);
+    private static final byte VERSION = 1;
+    private static final byte KIND_RESPONSE = 1;
+    private static final byte KIND_FAILURE = 2;
+
+    private PushCapture() {
+    }
+
+    public static final class Record {
+        private final String path;
+        private final String request;
+        private final String response;
+        private final boolean failed;
+        private final long startNanos;
+        private final long latencyNanos;
+
+        public Record(String path, String request, String response, boolean failed, long startNanos, long latencyNanos) {
+            this.path = path;
+            this.request = request;
+            this.response = response;
+            this.failed = failed;
+            this.startNanos = startNanos;
+            this.latencyNanos = latencyNanos;
+        }
+
+        /**
+         * @return the path of the request URL, e.g. {@code /--/api/v2/push/send}
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public String getRequest() {
+            return request;
+        }
+
+        /**
+         * @return the response body, or the error message if {@link #isFailed()}
+         */
+        public String getResponse() {
+            return response;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+    }
+
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+
+        public Writer(Path path) throws IOException {
+            out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16), 1 << 16));
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+        }
+
+        public synchronized void write(Record record) throws IOException {
+            out.writeByte(record.failed ? KIND_FAILURE : KIND_RESPONSE);
+            _writeVarLong(out, record.startNanos);
+            _writeVarLong(out, record.latencyNanos);
+            _writeString(out, record.path);
+            _writeString(out, record.request);
+            _writeString(out, record.response);
+        }
+
+        public synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+
+        public Reader(Path path) throws IOException {
+            in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16), 1 << 16));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            byte version = in.readByte();
+            if (!java.util.Arrays.equals(magic, MAGIC) || version != VERSION) {
+                in.close();
+                throw new IOException("Not a push capture: " + path);
+            }
+        }
+
+        /**
+         * @return the next record, or {@code null} at the end of the capture
+         */
+        public synchronized Record next() throws IOException {
+            int kind = in.read();
+            if (kind < 0) return null;
+            long start = _readVarLong(in);
+            long latency = _readVarLong(in);
+            String path = _readString(in);
+            String request = _readString(in);
+            String response = _readString(in);
+            return new Record(path, request, response, kind == KIND_FAILURE, start, latency);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static void _writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long _readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void _writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        _writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String _readString(DataInputStream in) throws IOException {
+        long length = _readVarLong(in);
+        if (length > Integer.MAX_VALUE) throw new IOException("Record too large");
+        byte[] bytes = new byte[(int) length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
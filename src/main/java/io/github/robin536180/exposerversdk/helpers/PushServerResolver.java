@@ -1,9 +1,19 @@
 package io.github.robin536180.exposerversdk.helpers;
 
+import io.github.robin536180.exposerversdk.ChunkTiming;
+
 import java.net.URL;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
 public interface PushServerResolver {
     public CompletableFuture<String> postAsync(URL url, String json) throws CompletionException;
+
+    /**
+     * Like {@link #postAsync(URL, String)}, additionally recording the phases of the exchange in
+     * {@code timing}. Resolvers that cannot measure them leave them at 0.
+     */
+    default CompletableFuture<String> postAsync(URL url, String json, ChunkTiming timing) throws CompletionException {
+        return postAsync(url, json);
+    }
 }
@@ -0,0 +1,71 @@
+package io.github.robin536180.exposerversdk.helpers;
+
+import io.github.robin536180.exposerversdk.ChunkTiming;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passes requests on to another resolver and writes every exchange, with its timing, to a
+ * {@link PushCapture} file for {@link ReplayPushServerResolver}.
+ * <p>
+ * Records are written on the completing thread; a capture that cannot be written is counted in
+ * {@link #getDroppedCount()} rather than failing the request. Close the resolver to finish the file.
+ */
+public class RecordingPushServerResolver implements PushServerResolver, Closeable {
+    private final PushServerResolver delegate;
+    private final PushCapture.Writer writer;
+    private final long origin = System.nanoTime();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public RecordingPushServerResolver(PushServerResolver delegate, Path path) throws IOException {
+        this.delegate = delegate;
+        this.writer = new PushCapture.Writer(path);
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(URL url, String json) throws CompletionException {
+        return postAsync(url, json, null);
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(URL url, String json, ChunkTiming timing) throws CompletionException {
+        long start = System.nanoTime();
+        CompletableFuture<String> response = timing != null
+                ? delegate.postAsync(url, json, timing)
+                : delegate.postAsync(url, json);
+        return response.whenComplete((body, throwable) -> {
+            long latency = System.nanoTime() - start;
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+            try {
+                writer.write(new PushCapture.Record(url.getPath(), json,
+                        cause == null ? body : String.valueOf(cause.getMessage()), cause != null,
+                        start - origin, latency));
+                recorded.incrementAndGet();
+            } catch (IOException e) {
+                dropped.incrementAndGet();
+            }
+        });
+    }
+
+    public long getRecordedCount() {
+        return recorded.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
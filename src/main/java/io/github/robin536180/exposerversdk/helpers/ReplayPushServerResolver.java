@@ -0,0 +1,99 @@
+package io.github.robin536180.exposerversdk.helpers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers requests with the responses of a {@link PushCapture} file written by
+ * {@link RecordingPushServerResolver}, without any network.
+ * <p>
+ * Each endpoint gets the recorded responses of that endpoint in recorded order, whatever the request,
+ * so a replay is deterministic. Responses are delayed by their recorded latency times
+ * {@link #latencyScale}; 0 answers immediately. The capture is read as requests arrive, buffering only
+ * records of endpoints that are asked for later; with {@link #loop} it starts over when it runs out,
+ * otherwise further requests fail.
+ */
+public class ReplayPushServerResolver implements PushServerResolver, Closeable {
+    public volatile double latencyScale = 1.0;
+    public volatile boolean loop = false;
+
+    private final Path path;
+    private final Map<String, ArrayDeque<PushCapture.Record>> buffered = new HashMap<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private PushCapture.Reader reader;
+
+    public ReplayPushServerResolver(Path path) throws IOException {
+        this.path = path;
+        this.reader = new PushCapture.Reader(path);
+        timer = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread t = new Thread(r, "expo-replay");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> postAsync(URL url, String json) throws CompletionException {
+        CompletableFuture<String> ret = new CompletableFuture<>();
+        PushCapture.Record record;
+        try {
+            record = _next(url.getPath());
+        } catch (IOException e) {
+            ret.completeExceptionally(e);
+            return ret;
+        }
+        if (record == null) {
+            ret.completeExceptionally(new IllegalStateException("Capture has no more responses for " + url.getPath()));
+            return ret;
+        }
+
+        Runnable complete = () -> {
+            if (record.isFailed()) {
+                ret.completeExceptionally(new IOException(record.getResponse()));
+            } else {
+                ret.complete(record.getResponse());
+            }
+        };
+        long delay = (long) (record.getLatencyNanos() * latencyScale);
+        if (delay <= 0) {
+            complete.run();
+        } else {
+            timer.schedule(complete, delay, TimeUnit.NANOSECONDS);
+        }
+        return ret;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        timer.shutdownNow();
+        reader.close();
+    }
+
+    private synchronized PushCapture.Record _next(String endpoint) throws IOException {
+        ArrayDeque<PushCapture.Record> queue = buffered.get(endpoint);
+        if (queue != null && !queue.isEmpty()) return queue.poll();
+
+        for (int pass = 0; pass < 2; pass++) {
+            PushCapture.Record record;
+            while ((record = reader.next()) != null) {
+                if (record.getPath().equals(endpoint)) return record;
+                buffered.computeIfAbsent(record.getPath(), p -> new ArrayDeque<>()).add(record);
+            }
+            if (!loop) return null;
+            // Buffered records come around again in the next pass.
+            buffered.clear();
+            reader.close();
+            reader = new PushCapture.Reader(path);
+        }
+        return null;
+    }
+}
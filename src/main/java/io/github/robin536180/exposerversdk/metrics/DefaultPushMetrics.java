@@ -0,0 +1,149 @@
+package io.github.robin536180.exposerversdk.metrics;
+
+import io.github.robin536180.exposerversdk.ChunkTiming;
+import io.github.robin536180.exposerversdk.enums.ReceiptError;
+import io.github.robin536180.exposerversdk.enums.Status;
+import io.github.robin536180.exposerversdk.enums.TicketError;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link PushMetrics} that keeps everything in memory, in {@link LongAdder}s and
+ * {@link LatencyHistogram}s, without any dependency.
+ */
+public class DefaultPushMetrics implements PushMetrics {
+    private final LongAdder[] requests = _adders(Operation.values().length);
+    private final LongAdder[] failures = _adders(Operation.values().length);
+    private final LongAdder[] inFlight = _adders(Operation.values().length);
+    private final LongAdder[] items = _adders(Operation.values().length);
+    private final LongAdder[] retries = _adders(Operation.values().length);
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LatencyHistogram httpLatency = new LatencyHistogram();
+    private final LatencyHistogram[] phaseLatencies = new LatencyHistogram[ChunkTiming.Phase.values().length];
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder[] ticketStatuses = _adders(Status.values().length);
+    private final LongAdder[] ticketErrors = _adders(TicketError.values().length);
+    private final LongAdder[] receiptStatuses = _adders(Status.values().length);
+    private final LongAdder[] receiptErrors = _adders(ReceiptError.values().length);
+
+    public DefaultPushMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < phaseLatencies.length; i++) {
+            phaseLatencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void requestStarted(Operation operation, int count) {
+        inFlight[operation.ordinal()].increment();
+        items[operation.ordinal()].add(count);
+    }
+
+    @Override
+    public void requestCompleted(Operation operation, long nanos, boolean success) {
+        int i = operation.ordinal();
+        inFlight[i].decrement();
+        requests[i].increment();
+        if (!success) failures[i].increment();
+        latencies[i].record(nanos);
+    }
+
+    @Override
+    public void httpExchange(long nanos, long requestBytes, long responseBytes, boolean success) {
+        httpLatency.record(nanos);
+        bytesSent.add(requestBytes);
+        bytesReceived.add(responseBytes);
+    }
+
+    @Override
+    public void retried(Operation operation, int count) {
+        retries[operation.ordinal()].add(count);
+    }
+
+    @Override
+    public void phase(ChunkTiming.Phase phase, long nanos) {
+        phaseLatencies[phase.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void ticket(Status status, TicketError error) {
+        if (status != null) ticketStatuses[status.ordinal()].increment();
+        if (error != null) ticketErrors[error.ordinal()].increment();
+    }
+
+    @Override
+    public void receipt(Status status, ReceiptError error) {
+        if (status != null) receiptStatuses[status.ordinal()].increment();
+        if (error != null) receiptErrors[error.ordinal()].increment();
+    }
+
+    public long getRequestCount(Operation operation) {
+        return requests[operation.ordinal()].sum();
+    }
+
+    public long getFailureCount(Operation operation) {
+        return failures[operation.ordinal()].sum();
+    }
+
+    public long getInFlight(Operation operation) {
+        return inFlight[operation.ordinal()].sum();
+    }
+
+    /**
+     * @return recipients sent, or ticket ids asked for
+     */
+    public long getItemCount(Operation operation) {
+        return items[operation.ordinal()].sum();
+    }
+
+    public long getRetryCount(Operation operation) {
+        return retries[operation.ordinal()].sum();
+    }
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    public LatencyHistogram getHttpLatency() {
+        return httpLatency;
+    }
+
+    public LatencyHistogram getPhaseLatency(ChunkTiming.Phase phase) {
+        return phaseLatencies[phase.ordinal()];
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getTicketCount(Status status) {
+        return ticketStatuses[status.ordinal()].sum();
+    }
+
+    public long getTicketErrorCount(TicketError error) {
+        return ticketErrors[error.ordinal()].sum();
+    }
+
+    public long getReceiptCount(Status status) {
+        return receiptStatuses[status.ordinal()].sum();
+    }
+
+    public long getReceiptErrorCount(ReceiptError error) {
+        return receiptErrors[error.ordinal()].sum();
+    }
+
+    private static LongAdder[] _adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
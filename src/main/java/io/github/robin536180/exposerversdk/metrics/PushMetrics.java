@@ -0,0 +1,66 @@
+package io.github.robin536180.exposerversdk.metrics;
+
+import io.github.robin536180.exposerversdk.ChunkTiming;
+import io.github.robin536180.exposerversdk.enums.ReceiptError;
+import io.github.robin536180.exposerversdk.enums.Status;
+import io.github.robin536180.exposerversdk.enums.TicketError;
+
+/**
+ * Receives measurements from the client and from {@link io.github.robin536180.exposerversdk.helpers.DefaultPushServerResolver}.
+ * <p>
+ * Methods are called on the sending and completing threads, once per request, ticket or receipt, so
+ * implementations should be cheap and must be thread safe. Every method does nothing by default;
+ * {@link DefaultPushMetrics} keeps counters and histograms in memory, and adapters for other metrics
+ * libraries implement the methods they need.
+ */
+public interface PushMetrics {
+    public static final PushMetrics NOOP = new PushMetrics() {
+    };
+
+    public enum Operation {
+        SEND,
+        RECEIPTS
+    }
+
+    /**
+     * @param items recipients for {@link Operation#SEND}, ticket ids for {@link Operation#RECEIPTS}
+     */
+    default void requestStarted(Operation operation, int items) {
+    }
+
+    /**
+     * @param nanos from serializing the request to parsing the response
+     */
+    default void requestCompleted(Operation operation, long nanos, boolean success) {
+    }
+
+    /**
+     * @param nanos from opening the connection to reading the last byte of the response
+     */
+    default void httpExchange(long nanos, long requestBytes, long responseBytes, boolean success) {
+    }
+
+    /**
+     * @param items messages handed back for a later attempt after a failed request
+     */
+    default void retried(Operation operation, int items) {
+    }
+
+    /**
+     * Time spent in one phase of a request, see {@link ChunkTiming}.
+     */
+    default void phase(ChunkTiming.Phase phase, long nanos) {
+    }
+
+    /**
+     * @param error {@code null} unless the ticket has error details
+     */
+    default void ticket(Status status, TicketError error) {
+    }
+
+    /**
+     * @param error {@code null} unless the receipt has error details
+     */
+    default void receipt(Status status, ReceiptError error) {
+    }
+}
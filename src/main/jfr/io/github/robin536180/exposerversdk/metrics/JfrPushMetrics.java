@@ -0,0 +1,230 @@
+package io.github.robin536180.exposerversdk.metrics;
+
+import io.github.robin536180.exposerversdk.ChunkTiming;
+import io.github.robin536180.exposerversdk.enums.ReceiptError;
+import io.github.robin536180.exposerversdk.enums.Status;
+import io.github.robin536180.exposerversdk.enums.TicketError;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * {@link PushMetrics} that emits Java Flight Recorder events, so push latency can be lined up with GC
+ * and thread activity in a recording.
+ * <p>
+ * Events are only allocated while a recording has them enabled; otherwise every method costs one check
+ * of a shared {@link EventType}. Measurements are also passed on to {@code delegate}, so this can wrap
+ * {@link DefaultPushMetrics}. Needs a JVM with {@code jdk.jfr} (8u262 or later, or 11+), see
+ * {@link #isAvailable()}. It lives in its own source root, {@code src/main/jfr}, which is only built on
+ * JDK 11 and later; the rest of the library still runs without it.
+ */
+public class JfrPushMetrics implements PushMetrics {
+    static final String CATEGORY = "Expo Push";
+
+    private final PushMetrics delegate;
+
+    public JfrPushMetrics() {
+        this(PushMetrics.NOOP);
+    }
+
+    public JfrPushMetrics(PushMetrics delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return {@code true} if this JVM supports Flight Recorder events
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrPushMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void requestStarted(Operation operation, int items) {
+        delegate.requestStarted(operation, items);
+        if (!Types.REQUEST_STARTED.isEnabled()) return;
+        RequestStartedEvent event = new RequestStartedEvent();
+        event.operation = operation.name();
+        event.items = items;
+        event.commit();
+    }
+
+    @Override
+    public void requestCompleted(Operation operation, long nanos, boolean success) {
+        delegate.requestCompleted(operation, nanos, success);
+        if (!Types.REQUEST.isEnabled()) return;
+        RequestEvent event = new RequestEvent();
+        event.operation = operation.name();
+        event.elapsed = nanos;
+        event.success = success;
+        event.commit();
+    }
+
+    @Override
+    public void httpExchange(long nanos, long requestBytes, long responseBytes, boolean success) {
+        delegate.httpExchange(nanos, requestBytes, responseBytes, success);
+        if (!Types.HTTP_EXCHANGE.isEnabled()) return;
+        HttpExchangeEvent event = new HttpExchangeEvent();
+        event.elapsed = nanos;
+        event.requestBytes = requestBytes;
+        event.responseBytes = responseBytes;
+        event.success = success;
+        event.commit();
+    }
+
+    @Override
+    public void phase(ChunkTiming.Phase phase, long nanos) {
+        delegate.phase(phase, nanos);
+        if (!Types.PHASE.isEnabled()) return;
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase.name();
+        event.elapsed = nanos;
+        event.commit();
+    }
+
+    @Override
+    public void retried(Operation operation, int items) {
+        delegate.retried(operation, items);
+        if (!Types.RETRY.isEnabled()) return;
+        RetryEvent event = new RetryEvent();
+        event.operation = operation.name();
+        event.items = items;
+        event.commit();
+    }
+
+    // Successful tickets and receipts are too frequent to be worth an event each; only errors get one.
+    @Override
+    public void ticket(Status status, TicketError error) {
+        delegate.ticket(status, error);
+        if (status != Status.ERROR) return;
+        if (!Types.TICKET_ERROR.isEnabled()) return;
+        TicketErrorEvent event = new TicketErrorEvent();
+        event.error = error != null ? error.name() : null;
+        event.commit();
+    }
+
+    @Override
+    public void receipt(Status status, ReceiptError error) {
+        delegate.receipt(status, error);
+        if (status != Status.ERROR) return;
+        if (!Types.RECEIPT_ERROR.isEnabled()) return;
+        ReceiptErrorEvent event = new ReceiptErrorEvent();
+        event.error = error != null ? error.name() : null;
+        event.commit();
+    }
+
+    // Looked up on first use, so loading JfrPushMetrics itself does not need jdk.jfr, see isAvailable().
+    private static final class Types {
+        static final EventType REQUEST_STARTED = EventType.getEventType(RequestStartedEvent.class);
+        static final EventType REQUEST = EventType.getEventType(RequestEvent.class);
+        static final EventType HTTP_EXCHANGE = EventType.getEventType(HttpExchangeEvent.class);
+        static final EventType PHASE = EventType.getEventType(PhaseEvent.class);
+        static final EventType RETRY = EventType.getEventType(RetryEvent.class);
+        static final EventType TICKET_ERROR = EventType.getEventType(TicketErrorEvent.class);
+        static final EventType RECEIPT_ERROR = EventType.getEventType(ReceiptErrorEvent.class);
+    }
+
+    @Name("io.github.robin536180.exposerversdk.RequestStarted")
+    @Label("Push Request Started")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class RequestStartedEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Items")
+        @Description("Recipients of a send, ticket ids of a receipts request")
+        int items;
+    }
+
+    @Name("io.github.robin536180.exposerversdk.Request")
+    @Label("Push Request")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class RequestEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Elapsed")
+        @Description("From serializing the request to parsing the response")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("io.github.robin536180.exposerversdk.HttpExchange")
+    @Label("Push HTTP Exchange")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class HttpExchangeEvent extends Event {
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Request Bytes")
+        @DataAmount
+        long requestBytes;
+
+        @Label("Response Bytes")
+        @DataAmount
+        long responseBytes;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("io.github.robin536180.exposerversdk.Phase")
+    @Label("Push Request Phase")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("io.github.robin536180.exposerversdk.Retry")
+    @Label("Push Retry")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class RetryEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Items")
+        int items;
+    }
+
+    @Name("io.github.robin536180.exposerversdk.TicketError")
+    @Label("Push Ticket Error")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class TicketErrorEvent extends Event {
+        @Label("Error")
+        String error;
+    }
+
+    @Name("io.github.robin536180.exposerversdk.ReceiptError")
+    @Label("Push Receipt Error")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class ReceiptErrorEvent extends Event {
+        @Label("Error")
+        String error;
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingTokenInvalidationSinkTest {
+
+    private static void awaitBatches(List<Collection<String>> batches, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batches.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void flushesFullBatchesAndDeduplicates() throws InterruptedException {
+        List<Collection<String>> batches = new CopyOnWriteArrayList<>();
+        BatchingTokenInvalidationSink sink = new BatchingTokenInvalidationSink(batches::add, 3, 60_000);
+
+        sink.invalidate(Arrays.asList("a", "b", "a"));
+        sink.invalidate(Collections.singletonList("b"));
+        assertEquals(0, batches.size());
+        sink.invalidate(Collections.singletonList("c"));
+
+        awaitBatches(batches, 1);
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b", "c")), batches);
+        sink.close();
+    }
+
+    @Test
+    public void flushesPartialBatchesAfterTheDelay() throws InterruptedException {
+        List<Collection<String>> batches = new CopyOnWriteArrayList<>();
+        BatchingTokenInvalidationSink sink = new BatchingTokenInvalidationSink(batches::add, 100, 50);
+
+        sink.invalidate(Arrays.asList("a", "b"));
+        awaitBatches(batches, 1);
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), batches);
+        assertEquals(0, sink.pendingCount());
+        sink.close();
+    }
+
+    @Test
+    public void failedBatchesAreRetried() {
+        List<List<String>> batches = new ArrayList<>();
+        boolean[] fail = {true};
+        BatchingTokenInvalidationSink sink = new BatchingTokenInvalidationSink(tokens -> {
+            if (fail[0]) throw new IllegalStateException("Database unavailable");
+            batches.add(new ArrayList<>(tokens));
+        }, 100, 60_000);
+
+        sink.invalidate(Arrays.asList("a", "b"));
+        sink.flush();
+        assertEquals(2, sink.pendingCount());
+
+        fail[0] = false;
+        sink.close();
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), batches);
+    }
+
+    @Test
+    public void failingDelegateIsRetriedWithBackoff() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        BatchingTokenInvalidationSink sink = new BatchingTokenInvalidationSink(tokens -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Database unavailable");
+        }, 2, 20);
+
+        sink.invalidate(Arrays.asList("a", "b"));
+        Thread.sleep(200);
+        // Retries after 20, 40 and 80 ms, instead of one per full batch as fast as possible.
+        assertTrue(attempts.get() >= 2 && attempts.get() <= 5, String.valueOf(attempts.get()));
+        assertEquals(attempts.get(), sink.getFailureCount());
+        sink.invalidate(Arrays.asList("c", "d"));
+        assertEquals(4, sink.pendingCount());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, sink::close);
+        assertEquals("Database unavailable", e.getMessage());
+        assertSame(e, sink.getLastFailure());
+        assertEquals(4, sink.pendingCount());
+    }
+
+    @Test
+    public void clientFeedsDeviceNotRegisteredTokens() throws PushClientException {
+        final String TICKETS_JSON = "{\"data\": [" +
+                "{\"status\": \"error\", \"details\": {\"error\": \"DeviceNotRegistered\", \"expoPushToken\": \"ExponentPushToken[a]\"}}," +
+                "{\"status\": \"ok\", \"id\": \"2\"}," +
+                "{\"status\": \"error\", \"details\": {\"error\": \"DeviceNotRegistered\"}}" +
+                "]}";
+
+        List<String> invalidated = new ArrayList<>();
+        PushClient client = new PushClient();
+        client.tokenInvalidationSink = invalidated::addAll;
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(TICKETS_JSON);
+
+        List<ExpoPushMessage> messages = new ArrayList<>();
+        messages.add(new ExpoPushMessage(Arrays.asList("ExponentPushToken[a]", "ExponentPushToken[b]", "ExponentPushToken[c]")));
+        client.sendPushNotificationsAsync(messages).join();
+
+        assertEquals(Arrays.asList("ExponentPushToken[a]", "ExponentPushToken[c]"), invalidated);
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.robin536180.exposerversdk;
+
+import com.sun.net.httpserver.HttpServer;
+import io.github.robin536180.exposerversdk.helpers.DefaultPushServerResolver;
+import io.github.robin536180.exposerversdk.metrics.DefaultPushMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkTimingTest {
+
+    @Test
+    public void everyPhaseOfARequestIsTimed() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/--/api/v2/push/send", exchange -> {
+            byte[] body = "{\"data\":[{\"status\":\"ok\",\"id\":\"a\"}]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        try {
+            PushClient client = new PushClient();
+            client.setBaseApiUrl(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/--/api/v2"));
+            DefaultPushServerResolver resolver = new DefaultPushServerResolver();
+            client.pushServerResolver = resolver;
+            DefaultPushMetrics metrics = new DefaultPushMetrics();
+            client.setPushMetrics(metrics);
+
+            List<List<ExpoPushMessage>> chunks = client.chunkPushNotifications(
+                    Collections.singletonList(new ExpoPushMessage("ExponentPushToken[a]")));
+            ChunkTiming timing = new ChunkTiming();
+            List<ExpoPushTicket> tickets = client.sendPushNotificationsAsync(chunks.get(0), timing).join();
+
+            assertEquals(1, tickets.size());
+            for (ChunkTiming.Phase phase : ChunkTiming.Phase.values()) {
+                if (phase == ChunkTiming.Phase.CHUNKING) {
+                    assertEquals(0, timing.get(phase));
+                } else {
+                    assertTrue(timing.get(phase) > 0, phase.toString());
+                }
+                assertEquals(1, metrics.getPhaseLatency(phase).getCount(), phase.toString());
+            }
+            assertTrue(timing.getTotal() > 0);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void resolversWithoutTimingLeaveTheirPhasesEmpty() throws Exception {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) ->
+                java.util.concurrent.CompletableFuture.completedFuture("{\"data\":[{\"status\":\"ok\",\"id\":\"a\"}]}");
+
+        ChunkTiming timing = new ChunkTiming();
+        client.sendPushNotificationsAsync(Collections.singletonList(new ExpoPushMessage("ExponentPushToken[a]")), timing).join();
+
+        assertTrue(timing.get(ChunkTiming.Phase.SERIALIZATION) > 0);
+        assertTrue(timing.get(ChunkTiming.Phase.PARSING) > 0);
+        assertEquals(0, timing.get(ChunkTiming.Phase.CONNECT));
+        assertEquals(0, timing.get(ChunkTiming.Phase.SERVER));
+    }
+}
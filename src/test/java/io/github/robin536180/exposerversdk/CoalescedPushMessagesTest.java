@@ -0,0 +1,136 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescedPushMessagesTest {
+
+    private static ExpoPushMessage message(String title, String... to) {
+        ExpoPushMessage message = new ExpoPushMessage(new ArrayList<>(Arrays.asList(to)));
+        message.setTitle(title);
+        message.setBody("body");
+        return message;
+    }
+
+    @Test
+    public void identicalContentIsMergedInOrderOfFirstAppearance() throws PushClientException {
+        PushClient client = new PushClient();
+        List<ExpoPushMessage> messages = Arrays.asList(
+                message("A", "a1"), message("B", "b1"), message("A", "a2", "a3"), message("B", "b2"));
+
+        CoalescedPushMessages<ExpoPushMessage> coalesced = client.coalescePushNotifications(messages);
+        assertEquals(2, coalesced.getMessages().size());
+        assertEquals("A", coalesced.getMessages().get(0).getTitle());
+        assertEquals(Arrays.asList("a1", "a2", "a3"), coalesced.getMessages().get(0).getTo());
+        assertEquals(Arrays.asList("b1", "b2"), coalesced.getMessages().get(1).getTo());
+        assertArrayEquals(new int[]{0, 2, 2}, coalesced.getOrigins(0));
+        assertArrayEquals(new int[]{1, 3}, coalesced.getOrigins(1));
+        assertEquals(Arrays.asList("a1"), messages.get(0).getTo());
+    }
+
+    @Test
+    public void ticketsOfChunkedMessagesMapBackToOriginals() throws PushClientException {
+        PushClient client = new PushClient();
+        client.PUSH_NOTIFICATION_CHUNK_LIMIT = 2;
+        List<ExpoPushMessage> messages = Arrays.asList(
+                message("A", "a1"), message("B", "b1"), message("A", "a2"), message("A", "a3"));
+
+        CoalescedPushMessages<ExpoPushMessage> coalesced = client.coalescePushNotifications(messages);
+        List<List<ExpoPushMessage>> chunks = client.chunkPushNotifications(coalesced.getMessages());
+        assertEquals(2, chunks.size());
+
+        List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs = new ArrayList<>();
+        int id = 0;
+        for (List<ExpoPushMessage> chunk : chunks) {
+            List<ExpoPushTicket> tickets = new ArrayList<>();
+            for (ExpoPushMessage sent : chunk) {
+                for (String ignored : sent.getTo()) {
+                    ExpoPushTicket ticket = new ExpoPushTicket();
+                    ticket.setId(String.valueOf(id++));
+                    tickets.add(ticket);
+                }
+            }
+            pairs.addAll(coalesced.zipOriginalMessagesTickets(chunk, tickets));
+        }
+
+        assertEquals(4, pairs.size());
+        assertSame(messages.get(0), pairs.get(0).message);
+        assertSame(messages.get(2), pairs.get(1).message);
+        assertSame(messages.get(3), pairs.get(2).message);
+        assertSame(messages.get(1), pairs.get(3).message);
+        assertNull(coalesced.getOriginalMessage(message("C"), "a1"));
+    }
+
+    @Test
+    public void mergedMessagesKeepTheOldestEnqueuedAt() throws PushClientException {
+        PushClient client = new PushClient();
+        List<ExpoPushMessage> messages = Arrays.asList(message("A", "a1"), message("A", "a2"), message("A", "a3"));
+        messages.get(0).setEnqueuedAt(2000L);
+        messages.get(1).setEnqueuedAt(1000L);
+
+        CoalescedPushMessages<ExpoPushMessage> coalesced = client.coalescePushNotifications(messages);
+        assertEquals(1, coalesced.getMessages().size());
+        assertEquals(Long.valueOf(1000), coalesced.getMessages().get(0).getEnqueuedAt());
+        assertSame(messages.get(1), coalesced.getOriginalMessage(coalesced.getMessages().get(0), "a2"));
+    }
+
+    @Test
+    public void subclassesAreOnlyMergedWhenTheyProvideAContentKey() throws PushClientException {
+        PushClientCustomData<CategoryMessage> client = new PushClientCustomData<>();
+        List<CategoryMessage> messages = Arrays.asList(
+                new CategoryMessage("news", "a1"), new CategoryMessage("sale", "a2"), new CategoryMessage("news", "a3"));
+
+        CoalescedPushMessages<CategoryMessage> coalesced = client.coalescePushNotifications(messages);
+        assertEquals(3, coalesced.getMessages().size());
+        assertSame(messages.get(1), coalesced.getOriginalMessage(coalesced.getMessages().get(1), "a2"));
+
+        List<KeyedCategoryMessage> keyed = Arrays.asList(
+                new KeyedCategoryMessage("news", "a1"), new KeyedCategoryMessage("sale", "a2"), new KeyedCategoryMessage("news", "a3"));
+        CoalescedPushMessages<KeyedCategoryMessage> keyedCoalesced = new PushClientCustomData<KeyedCategoryMessage>().coalescePushNotifications(keyed);
+        assertEquals(2, keyedCoalesced.getMessages().size());
+        assertEquals(Arrays.asList("a1", "a3"), keyedCoalesced.getMessages().get(0).getTo());
+    }
+
+    static class CategoryMessage extends ExpoPushMessageCustomData<Object> {
+        final String category;
+
+        CategoryMessage(String category, String to) {
+            super(new ArrayList<>(Collections.singletonList(to)));
+            this.category = category;
+            setTitle("title");
+        }
+
+        CategoryMessage(CategoryMessage message) {
+            super(message);
+            this.category = message.category;
+        }
+
+        @Override
+        public Object clone() {
+            return new CategoryMessage(this);
+        }
+    }
+
+    static class KeyedCategoryMessage extends CategoryMessage {
+        KeyedCategoryMessage(String category, String to) {
+            super(category, to);
+        }
+
+        KeyedCategoryMessage(KeyedCategoryMessage message) {
+            super(message);
+        }
+
+        @Override
+        protected Object contentKey() {
+            return Arrays.asList(baseContentKey(), category);
+        }
+
+        @Override
+        public Object clone() {
+            return new KeyedCategoryMessage(this);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollapsingSendQueueTest {
+
+    private static ExpoPushMessage badge(long count, String... to) {
+        ExpoPushMessage message = new ExpoPushMessage(Arrays.asList(to));
+        message.setBadge(count);
+        return message;
+    }
+
+    @Test
+    public void newerMessageReplacesWaitingOneInPlace() {
+        CollapsingSendQueue<ExpoPushMessage> queue = new CollapsingSendQueue<>();
+        assertTrue(queue.offer(badge(1, "a", "b")));
+        assertTrue(queue.offer(badge(2, "c")));
+        assertTrue(queue.offer(badge(3, "a")));
+        assertTrue(queue.offer(badge(4, "a"), "status"));
+
+        assertEquals(4, queue.pendingCount());
+        assertEquals(1, queue.getCollapsedCount());
+
+        List<ExpoPushMessage> drained = queue.drain(10);
+        assertEquals(4, drained.size());
+        assertEquals(Collections.singletonList("a"), drained.get(0).getTo());
+        assertEquals(Long.valueOf(3), drained.get(0).getBadge());
+        assertEquals(Collections.singletonList("b"), drained.get(1).getTo());
+        assertEquals(Long.valueOf(1), drained.get(1).getBadge());
+        assertEquals(Long.valueOf(2), drained.get(2).getBadge());
+        assertEquals(Long.valueOf(4), drained.get(3).getBadge());
+        assertEquals(0, queue.pendingCount());
+
+        assertTrue(queue.offer(badge(5, "a")));
+        assertEquals(Long.valueOf(5), queue.drain(10).get(0).getBadge());
+    }
+
+    @Test
+    public void fullQueueRejectsNewKeysButStillCollapses() {
+        CollapsingSendQueue<ExpoPushMessage> queue = new CollapsingSendQueue<>(2);
+        assertTrue(queue.offer(badge(1, "a", "b")));
+        assertFalse(queue.offer(badge(2, "c")));
+        assertTrue(queue.offer(badge(3, "b")));
+        assertEquals(2, queue.pendingCount());
+        assertEquals(1, queue.getRejectedCount());
+
+        assertEquals(1, queue.drain(1).size());
+        assertTrue(queue.offer(badge(4, "c")));
+    }
+
+    @Test
+    public void clientSendsOneNotificationPerDevice() throws PushClientException, ExecutionException, InterruptedException {
+        PushClient client = new PushClient();
+        List<Integer> sent = new ArrayList<>();
+        client.pushServerResolver = (url, json) -> {
+            int count = json.split("ExponentPushToken").length - 1;
+            sent.add(count);
+            StringJoiner tickets = new StringJoiner(",", "{\"data\":[", "]}");
+            for (int i = 0; i < count; i++) tickets.add("{\"status\":\"ok\",\"id\":\"" + i + "\"}");
+            return CompletableFuture.completedFuture(tickets.toString());
+        };
+
+        CollapsingSendQueue<ExpoPushMessage> queue = new CollapsingSendQueue<>();
+        for (int i = 0; i < 1000; i++) {
+            queue.offer(badge(i, "ExponentPushToken[" + (i % 150) + "]"));
+        }
+        assertEquals(150, queue.pendingCount());
+
+        List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs = client.sendCollapsedPushNotificationsAsync(queue).get();
+        assertEquals(100, pairs.size());
+        assertEquals(Arrays.asList("ExponentPushToken[0]"), pairs.get(0).getMessage().getTo());
+        assertEquals(Long.valueOf(900), pairs.get(0).getMessage().getBadge());
+        assertEquals("99", pairs.get(99).getTicket().getId());
+        assertEquals(50, client.sendCollapsedPushNotificationsAsync(queue).get().size());
+        assertEquals(Arrays.asList(100, 50), sent);
+    }
+
+    @Test
+    public void failedSendPutsMessagesBackUnlessReplaced() throws PushClientException, InterruptedException {
+        PushClient client = new PushClient();
+        CompletableFuture<String> response = new CompletableFuture<>();
+        client.pushServerResolver = (url, json) -> response;
+
+        CollapsingSendQueue<ExpoPushMessage> queue = new CollapsingSendQueue<>();
+        queue.offer(badge(1, "ExponentPushToken[a]", "ExponentPushToken[b]"));
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> request = client.sendCollapsedPushNotificationsAsync(queue);
+        assertEquals(0, queue.pendingCount());
+
+        queue.offer(badge(2, "ExponentPushToken[b]"));
+        response.completeExceptionally(new java.io.IOException("Connection reset"));
+        assertThrows(ExecutionException.class, request::get);
+
+        List<ExpoPushMessage> waiting = queue.drain(10);
+        assertEquals(2, waiting.size());
+        assertEquals(Arrays.asList("ExponentPushToken[b]"), waiting.get(0).getTo());
+        assertEquals(Long.valueOf(2), waiting.get(0).getBadge());
+        assertEquals(Arrays.asList("ExponentPushToken[a]"), waiting.get(1).getTo());
+        assertEquals(Long.valueOf(1), waiting.get(1).getBadge());
+    }
+}
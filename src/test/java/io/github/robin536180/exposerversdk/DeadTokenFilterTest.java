@@ -0,0 +1,91 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadTokenFilterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void onlyAddedTokensAreDead() {
+        DeadTokenFilter filter = new DeadTokenFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("ExponentPushToken[dead" + i + "]");
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.isDead("ExponentPushToken[dead" + i + "]"));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            String token = "ExponentPushToken[live" + i + "]";
+            assertFalse(filter.isDead(token));
+            if (filter.mightBeDead(token)) falsePositives++;
+        }
+        assertTrue(falsePositives < 500, "Bloom filter false positive rate is far above 1%: " + falsePositives);
+
+        filter.remove("ExponentPushToken[dead1]");
+        assertFalse(filter.isDead("ExponentPushToken[dead1]"));
+        assertEquals(999, filter.size());
+    }
+
+    @Test
+    public void persistedTokensAreReloaded() throws IOException {
+        Path path = directory.resolve("dead.tokens");
+        try (DeadTokenFilter filter = new DeadTokenFilter(path)) {
+            filter.add("ExponentPushToken[one]");
+            filter.add("ExponentPushToken[two]");
+            filter.remove("ExponentPushToken[one]");
+        }
+        try (DeadTokenFilter filter = new DeadTokenFilter(path)) {
+            assertFalse(filter.isDead("ExponentPushToken[one]"));
+            assertTrue(filter.isDead("ExponentPushToken[two]"));
+        }
+    }
+
+    @Test
+    public void clientLearnsFromTicketsAndPrunesChunks() throws PushClientException {
+        final String TICKETS_JSON = "{\"data\": [" +
+                "{\"status\": \"ok\", \"id\": \"1\"}," +
+                "{\"status\": \"error\", \"message\": \"not registered\", \"details\": {\"error\": \"DeviceNotRegistered\"}}" +
+                "]}";
+
+        PushClient client = new PushClient();
+        client.deadTokenFilter = new DeadTokenFilter(1000, 0.01);
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(TICKETS_JSON);
+
+        List<ExpoPushMessage> messages = new ArrayList<>();
+        messages.add(new ExpoPushMessage(Arrays.asList("Recipient 1", "Recipient 2")));
+        client.sendPushNotificationsAsync(messages).join();
+        assertTrue(client.deadTokenFilter.isDead("Recipient 2"));
+
+        List<List<ExpoPushMessage>> chunks = client.chunkPushNotifications(messages);
+        assertEquals(1, chunks.size());
+        assertEquals(Collections.singletonList("Recipient 1"), chunks.get(0).get(0).getTo());
+    }
+
+    @Test
+    public void clientLearnsFromReceiptsThroughTheTicketJournal() throws PushClientException, IOException {
+        final String RECEIPTS_JSON = "{\"data\": {\"ticket-1\": {\"status\": \"error\", \"details\": {\"error\": \"DeviceNotRegistered\"}}}}";
+
+        PushClient client = new PushClient();
+        client.deadTokenFilter = new DeadTokenFilter(1000, 0.01);
+        client.ticketJournal = new TicketJournal(directory.resolve("tickets.journal"));
+        client.ticketJournal.record("ticket-1", 0, "Recipient 1");
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(RECEIPTS_JSON);
+
+        client.getPushNotificationReceiptsAsync(Collections.singletonList("ticket-1")).join();
+        assertTrue(client.deadTokenFilter.isDead("Recipient 1"));
+        assertEquals(0, client.ticketJournal.size());
+        client.ticketJournal.close();
+    }
+}
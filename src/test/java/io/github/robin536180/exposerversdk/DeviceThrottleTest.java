@@ -0,0 +1,108 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceThrottleTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long T0 = 1_700_000_000_000L / MINUTE * MINUTE;
+
+    @Test
+    public void limitsEachTokenWithinTheSlidingWindow() {
+        DeviceThrottle throttle = new DeviceThrottle(3, MINUTE);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(throttle.tryAcquire("spammed", T0 + i));
+        }
+        assertFalse(throttle.tryAcquire("spammed", T0 + 10));
+        assertTrue(throttle.tryAcquire("other", T0 + 10));
+
+        // A quarter into the next window, three quarters of the previous count still apply.
+        assertTrue(throttle.tryAcquire("spammed", T0 + MINUTE + MINUTE / 4));
+        assertFalse(throttle.tryAcquire("spammed", T0 + MINUTE + MINUTE / 4));
+        assertTrue(throttle.tryAcquire("spammed", T0 + MINUTE + MINUTE / 2));
+        assertFalse(throttle.tryAcquire("spammed", T0 + MINUTE + MINUTE / 2));
+        assertTrue(throttle.tryAcquire("spammed", T0 + 3 * MINUTE));
+        assertEquals(T0 + MINUTE, throttle.retryAt(T0 + 10));
+
+        assertTrue(new DeviceThrottle(0xFFFE, MINUTE).tryAcquire("spammed", T0));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new DeviceThrottle(0xFFFF, MINUTE));
+        assertEquals("maxPerWindow must be between 1 and 65534", e.getMessage());
+    }
+
+    @Test
+    public void idleSlotsAreReusedByNewTokens() {
+        DeviceThrottle throttle = new DeviceThrottle(1, MINUTE, DeviceThrottle.Policy.DROP, 4096);
+        for (int i = 0; i < 1500; i++) {
+            assertTrue(throttle.tryAcquire("token" + i, T0));
+        }
+        for (int i = 0; i < 1500; i++) {
+            assertTrue(throttle.tryAcquire("fresh" + i, T0 + 10 * MINUTE));
+        }
+        assertFalse(throttle.tryAcquire("fresh1", T0 + 10 * MINUTE));
+        assertEquals(0, throttle.getUntrackedCount());
+    }
+
+    private static PushClient client(List<String> requests) throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> {
+            requests.add(json);
+            int count = json.split("ExponentPushToken").length - 1;
+            StringJoiner tickets = new StringJoiner(",", "{\"data\":[", "]}");
+            for (int i = 0; i < count; i++) tickets.add("{\"status\":\"ok\",\"id\":\"" + i + "\"}");
+            return CompletableFuture.completedFuture(tickets.toString());
+        };
+        return client;
+    }
+
+    @Test
+    public void clientDropsOrDefersThrottledRecipientsWhenSending() throws Exception {
+        List<String> requests = new ArrayList<>();
+        PushClient client = client(requests);
+        client.deviceThrottle = new DeviceThrottle(2, MINUTE);
+        List<ExpoPushMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(new ExpoPushMessage(Arrays.asList("ExponentPushToken[spammed]", "ExponentPushToken[quiet" + i + "]")));
+        }
+        List<List<ExpoPushMessage>> chunks = client.chunkPushNotifications(messages);
+        assertEquals(10, client._getActualMessagesCount(chunks.get(0)));
+        assertEquals(0, client.throttledRecipientsDropped.get());
+
+        List<ExpoPushTicket> tickets = client.sendPushNotificationsAsync(chunks.get(0)).get();
+        assertEquals(10, tickets.size());
+        assertEquals(3, client.throttledRecipientsDropped.get());
+        assertEquals(7, requests.get(0).split("ExponentPushToken").length - 1);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i < 4 || i % 2 == 1 ? Status.OK : Status.ERROR, tickets.get(i).getStatus());
+        }
+        List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs = client.zipMessagesTickets(chunks.get(0), tickets);
+        assertEquals("ExponentPushToken[spammed]", pairs.get(4).message.getTo().get(0));
+        assertEquals(PushClientCustomData.THROTTLED_TICKET_MESSAGE, tickets.get(4).getMessage());
+
+        List<ExpoPushMessage> deferred = new ArrayList<>();
+        List<Long> notBefore = new ArrayList<>();
+        client.deviceThrottle = new DeviceThrottle(2, MINUTE, DeviceThrottle.Policy.DEFER, 1024);
+        assertThrows(IllegalStateException.class, () -> client.sendPushNotificationsAsync(chunks.get(0)));
+        assertEquals(1, requests.size());
+        client.deferredMessageSink = (message, at) -> {
+            deferred.add(message);
+            notBefore.add(at);
+        };
+        long now = System.currentTimeMillis();
+        client.chunkPushNotifications(messages);
+        assertTrue(deferred.isEmpty());
+        tickets = client.sendPushNotificationsAsync(chunks.get(0)).get();
+        assertEquals(PushClientCustomData.DEFERRED_TICKET_MESSAGE, tickets.get(4).getMessage());
+        assertEquals(3, deferred.size());
+        assertEquals(3, client.throttledRecipientsDeferred.get());
+        assertTrue(notBefore.get(0) > now);
+        for (ExpoPushMessage message : deferred) {
+            assertEquals(Collections.singletonList("ExponentPushToken[spammed]"), message.getTo());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.robin536180.exposerversdk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiredMessagesTest {
+
+    @TempDir
+    Path directory;
+
+    private static ExpoPushMessage message(String title, Long ttl, Long expiration, Long enqueuedAt) {
+        ExpoPushMessage message = new ExpoPushMessage("ExponentPushToken[" + title + "]");
+        message.setTitle(title);
+        message.setTtl(ttl);
+        message.setExpiration(expiration);
+        message.setEnqueuedAt(enqueuedAt);
+        return message;
+    }
+
+    @Test
+    public void chunkingDropsExpiredMessages() throws PushClientException {
+        long now = System.currentTimeMillis();
+        PushClient client = new PushClient();
+        assertEquals(5, client.chunkPushNotifications(Arrays.asList(
+                message("a", 60L, null, now - 120000), message("b", null, now / 1000 - 10, null),
+                message("c", 0L, null, now - 1000), message("d", null, null, null), message("e", 1L, null, now))).get(0).size());
+
+        client.DROP_EXPIRED_MESSAGES = true;
+        List<ExpoPushMessage> dropped = new ArrayList<>();
+        client.expiredMessageListener = dropped::add;
+
+        List<ExpoPushMessage> messages = Arrays.asList(
+                message("fresh", 60L, null, now),
+                message("ttlRanOut", 60L, null, now - 120000),
+                message("expired", null, now / 1000 - 10, null),
+                message("future", null, now / 1000 + 600, null),
+                message("noEnqueueTime", 60L, null, null),
+                message("zeroTtl", 0L, null, now - 120000));
+
+        List<List<ExpoPushMessage>> chunks = client.chunkPushNotifications(messages);
+        assertEquals(4, chunks.get(0).size());
+        assertEquals("fresh", chunks.get(0).get(0).getTitle());
+        assertEquals("future", chunks.get(0).get(1).getTitle());
+        assertEquals("noEnqueueTime", chunks.get(0).get(2).getTitle());
+        assertEquals("zeroTtl", chunks.get(0).get(3).getTitle());
+        assertEquals(Arrays.asList(messages.get(1), messages.get(2)), dropped);
+        assertEquals(2, client.expiredMessagesDropped.get());
+
+        client.DROP_EXPIRED_MESSAGES = false;
+        assertEquals(6, client.chunkPushNotifications(messages).get(0).size());
+    }
+
+    @Test
+    public void enqueueTimeIsNotSerialized() throws JsonProcessingException {
+        String json = new ObjectMapper().writeValueAsString(message("a", 60L, null, 1234L));
+        assertEquals("{\"to\":[\"ExponentPushToken[a]\"],\"title\":\"a\",\"ttl\":60}", json);
+    }
+
+    @Test
+    public void spoolKeepsEnqueueTimeAndExpiredMessagesAreAcknowledged() throws IOException, PushClientException {
+        long now = System.currentTimeMillis();
+        PushClient client = new PushClient();
+        client.DROP_EXPIRED_MESSAGES = true;
+        List<String> sent = new ArrayList<>();
+        client.pushServerResolver = (url, json) -> {
+            sent.add(json);
+            return CompletableFuture.completedFuture("{\"data\":[{\"status\":\"ok\",\"id\":\"1\"}]}");
+        };
+
+        try (MessageSpool<ExpoPushMessage> spool = new MessageSpool<>(directory, ExpoPushMessage.class)) {
+            spool.appendAll(Arrays.asList(message("stale", 60L, null, now - 120000), message("fresh", 60L, null, null)));
+            assertEquals(1, client.sendSpooledPushNotificationsAsync(spool).join().size());
+            assertEquals(1, sent.size());
+            assertTrue(sent.get(0).contains("fresh"));
+            assertEquals(0, spool.pendingCount());
+            assertEquals(0, spool.inFlightCount());
+            assertEquals(1, client.expiredMessagesDropped.get());
+        }
+    }
+
+    @Test
+    public void messagesThatExpireWhileQueuedAreNotSent() throws Exception {
+        PushClient client = new PushClient();
+        client.DROP_EXPIRED_MESSAGES = true;
+        List<ExpoPushMessage> dropped = new ArrayList<>();
+        client.expiredMessageListener = dropped::add;
+        List<String> requests = new ArrayList<>();
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        client.pushServerResolver = (url, json) -> {
+            requests.add(json);
+            CompletableFuture<String> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        };
+        PushDispatcher<ExpoPushMessage> dispatcher = new PushDispatcher<>(client).setMaxInFlight(1);
+
+        long now = System.currentTimeMillis();
+        dispatcher.submit(Collections.singletonList(message("first", null, null, null)));
+        // Still fresh when chunked, but its one second ttl runs out while it waits behind "first".
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> queued =
+                dispatcher.submit(Collections.singletonList(message("queued", 1L, null, now - 700)));
+        assertEquals(1, requests.size());
+        assertTrue(dropped.isEmpty());
+
+        Thread.sleep(400);
+        responses.get(0).complete("{\"data\":[{\"status\":\"ok\",\"id\":\"1\"}]}");
+        List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs = queued.join();
+        assertEquals(1, requests.size());
+        assertEquals(1, pairs.size());
+        assertEquals(PushClientCustomData.EXPIRED_TICKET_MESSAGE, pairs.get(0).ticket.getMessage());
+        assertEquals(1, dropped.size());
+        assertEquals("queued", dropped.get(0).getTitle());
+        assertEquals(1, client.expiredMessagesDropped.get());
+    }
+}
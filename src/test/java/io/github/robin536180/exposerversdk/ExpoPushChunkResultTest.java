@@ -0,0 +1,80 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.Status;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpoPushChunkResultTest {
+
+    @Test
+    public void requestErrorsAreReturnedAsData() throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture("{"
+                + "\"data\":[{\"status\":\"ok\",\"id\":\"a\"}],"
+                + "\"errors\":[{\"code\":\"PUSH_TOO_MANY_EXPERIENCE_IDS\",\"message\":\"mixed\"}]}");
+        List<ExpoPushMessage> messages = Collections.singletonList(new ExpoPushMessage("ExponentPushToken[a]"));
+
+        ExpoPushChunkResult<ExpoPushMessage> result = client.sendPushNotificationsResultAsync(messages).join();
+
+        assertFalse(result.isSuccess());
+        assertNull(result.getFailure());
+        assertEquals("PUSH_TOO_MANY_EXPERIENCE_IDS", result.getErrors().get(0).getCode());
+        assertEquals(Status.OK, result.getTickets().get(0).getStatus());
+        assertSame(messages.get(0), result.getMessageTicketPairs().get(0).message);
+
+        PushNotificationException e = assertThrows(PushNotificationException.class,
+                () -> client.sendPushNotificationsAsync(messages).join());
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(1, ((PushNotificationErrorsException) e.exception).data.size());
+    }
+
+    @Test
+    public void transportFailuresAreReturnedAsData() throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("connection reset"));
+            return failed;
+        };
+
+        ExpoPushChunkResult<ExpoPushMessage> result = client.sendPushNotificationsResultAsync(
+                Collections.singletonList(new ExpoPushMessage("ExponentPushToken[a]"))).join();
+        assertFalse(result.isSuccess());
+        assertTrue(result.getFailure() instanceof IOException);
+        assertTrue(result.getTickets().isEmpty());
+
+        ExpoPushReceiptsResult receipts = client.getPushNotificationReceiptsResultAsync(Collections.singletonList("a")).join();
+        assertTrue(receipts.getFailure() instanceof IOException);
+    }
+
+    @Test
+    public void failuresBeforeSendingAreReturnedAsData() throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> {
+            throw new IllegalStateException("closed");
+        };
+
+        ExpoPushChunkResult<ExpoPushMessage> result = client.sendPushNotificationsResultAsync(
+                Collections.singletonList(new ExpoPushMessage("ExponentPushToken[a]"))).join();
+        assertTrue(result.getFailure() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void receiptsResultsCarryReceiptsAndErrors() throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture("{"
+                + "\"data\":{\"a\":{\"status\":\"ok\"}},"
+                + "\"errors\":[{\"code\":\"TOO_MANY_REQUESTS\",\"message\":\"slow down\"}]}");
+
+        ExpoPushReceiptsResult result = client.getPushNotificationReceiptsResultAsync(Arrays.asList("a", "b")).join();
+
+        assertFalse(result.isSuccess());
+        assertEquals("a", result.getReceipts().get(0).getId());
+        assertEquals("TOO_MANY_REQUESTS", result.getErrors().get(0).getCode());
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.ReceiptError;
+import io.github.robin536180.exposerversdk.enums.Status;
+import io.github.robin536180.exposerversdk.enums.TicketError;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpoPushClassificationTest {
+
+    private static ExpoPushTicket ticket(Status status, TicketError error) {
+        ExpoPushTicket ticket = new ExpoPushTicket();
+        ticket.setStatus(status);
+        if (error != null) ticket.setDetails(new ExpoPushTicket.Details().setError(error));
+        return ticket;
+    }
+
+    @Test
+    public void classifyMessagesTicketsMatchesTheFilters() throws PushClientException {
+        List<ExpoPushMessageCustomData<Integer>> messages = new ArrayList<>();
+        List<ExpoPushTicket> tickets = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            messages.add(new ExpoPushMessageCustomData<>("Recipient " + i));
+            switch (random.nextInt(4)) {
+                case 0:
+                    tickets.add(ticket(Status.ERROR, TicketError.DEVICENOTREGISTERED));
+                    break;
+                case 1:
+                    tickets.add(ticket(Status.ERROR, TicketError.INVALIDCREDENTIALS));
+                    break;
+                default:
+                    tickets.add(ticket(Status.OK, null));
+            }
+        }
+
+        PushClientCustomData<ExpoPushMessageCustomData<Integer>> client = new PushClientCustomData<>();
+        List<ExpoPushMessageTicketPair<ExpoPushMessageCustomData<Integer>>> zipped = client.zipMessagesTickets(messages, tickets);
+        ExpoPushClassification<ExpoPushMessageTicketPair<ExpoPushMessageCustomData<Integer>>, TicketError> classification =
+                client.classifyMessagesTickets(zipped);
+
+        assertEquals(1000, classification.size());
+        assertEquals(client.filterAllSuccessfulMessages(zipped), classification.get(Status.OK));
+        assertEquals(client.filterAllMessagesWithError(zipped), classification.get(Status.ERROR));
+        assertEquals(client.filterAllMessagesWithError(zipped, TicketError.DEVICENOTREGISTERED), classification.get(TicketError.DEVICENOTREGISTERED));
+        assertEquals(client.filterAllMessagesWithError(zipped, TicketError.INVALIDCREDENTIALS).size(), classification.count(TicketError.INVALIDCREDENTIALS));
+        assertEquals(classification.count(Status.OK) + classification.count(Status.ERROR), 1000);
+    }
+
+    @Test
+    public void classifyReceiptsBucketsByReceiptError() throws PushClientException {
+        List<ExpoPushReceipt> receipts = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ExpoPushReceipt receipt = new ExpoPushReceipt();
+            receipt.setId(String.valueOf(i));
+            receipt.setStatus(i == 1 ? Status.ERROR : Status.OK);
+            if (i == 1) receipt.setDetails(new ExpoPushReceipt.Details().setError(ReceiptError.MESSAGETOOBIG));
+            receipts.add(receipt);
+        }
+
+        ExpoPushClassification<ExpoPushReceipt, ReceiptError> classification = new PushClient().classifyReceipts(receipts);
+        assertArrayEquals(new int[]{0, 2}, classification.indices(Status.OK));
+        assertEquals("1", classification.get(ReceiptError.MESSAGETOOBIG).get(0).getId());
+        assertEquals(0, classification.count(ReceiptError.DEVICENOTREGISTERED));
+        assertTrue(classification.get(ReceiptError.DEVICENOTREGISTERED).isEmpty());
+    }
+}
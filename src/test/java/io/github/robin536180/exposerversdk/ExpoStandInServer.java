@@ -0,0 +1,246 @@
+package io.github.robin536180.exposerversdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for Expo's push API, for load and latency tests: point
+ * {@link PushClientCustomData#setBaseApiUrl(URL)} at {@link #getBaseApiUrl()}.
+ * <p>
+ * {@code /push/send} answers with one ticket per recipient, {@code /push/getReceipts} with the receipts
+ * of tickets older than {@link #receiptDelayMillis} at the time of the receipts request. Latency, whole-request failures (HTTP 500 and 429)
+ * and per-recipient errors are configured through the public fields, which can be changed while the
+ * server runs. Delayed responses are sent from a timer, so slow responses do not tie up threads.
+ */
+public class ExpoStandInServer implements Closeable {
+
+    /**
+     * Milliseconds to wait before answering a request.
+     */
+    public interface Latency {
+        long nextMillis(Random random);
+
+        static Latency fixed(long millis) {
+            return random -> millis;
+        }
+
+        static Latency uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+        }
+
+        /**
+         * Long-tailed like real network latency; {@code sigma} around 0.5 gives a p99 of about three
+         * times the median.
+         */
+        static Latency logNormal(double medianMillis, double sigma) {
+            return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    public volatile Latency sendLatency = Latency.fixed(0);
+    public volatile Latency receiptsLatency = Latency.fixed(0);
+    /** Share of requests answered with HTTP 500. */
+    public volatile double serverErrorRate = 0;
+    /** Share of requests answered with HTTP 429 and a {@code TOO_MANY_REQUESTS} error. */
+    public volatile double tooManyRequestsRate = 0;
+    /** Share of recipients that get a {@code DeviceNotRegistered} ticket. */
+    public volatile double ticketErrorRate = 0;
+    /** Share of receipts with a {@code MessageTooBig} error. */
+    public volatile double receiptErrorRate = 0;
+    public volatile long receiptDelayMillis = 0;
+    /** Tokens that always get a {@code DeviceNotRegistered} ticket. */
+    public final Set<String> unregisteredTokens = ConcurrentHashMap.newKeySet();
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService timer;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ConcurrentHashMap<String, Receipt> receipts = new ConcurrentHashMap<>();
+    private final AtomicLong nextTicketId = new AtomicLong();
+    private final AtomicLong sendRequests = new AtomicLong();
+    private final AtomicLong receiptRequests = new AtomicLong();
+    private final AtomicLong recipients = new AtomicLong();
+
+    public ExpoStandInServer() throws IOException {
+        this(0, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param port 0 for any free port
+     */
+    public ExpoStandInServer(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        handlers = Executors.newFixedThreadPool(threads, r -> _daemon(r, "expo-stand-in"));
+        timer = Executors.newSingleThreadScheduledExecutor(r -> _daemon(r, "expo-stand-in-timer"));
+        server.setExecutor(handlers);
+        server.createContext("/--/api/v2/push/send", this::_send);
+        server.createContext("/--/api/v2/push/getReceipts", this::_getReceipts);
+        server.start();
+    }
+
+    public URL getBaseApiUrl() {
+        try {
+            return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/--/api/v2");
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long getSendRequestCount() {
+        return sendRequests.get();
+    }
+
+    public long getReceiptRequestCount() {
+        return receiptRequests.get();
+    }
+
+    public long getRecipientCount() {
+        return recipients.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        timer.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    private void _send(HttpExchange exchange) throws IOException {
+        sendRequests.incrementAndGet();
+        Random random = ThreadLocalRandom.current();
+        JsonNode body = _readBody(exchange);
+        if (_failed(exchange, random, sendLatency)) return;
+
+        long now = System.currentTimeMillis();
+        ObjectNode response = mapper.createObjectNode();
+        ArrayNode data = response.putArray("data");
+        for (JsonNode message : body.isArray() ? body : mapper.createArrayNode().add(body)) {
+            JsonNode to = message.get("to");
+            for (JsonNode recipient : to.isArray() ? to : mapper.createArrayNode().add(to)) {
+                recipients.incrementAndGet();
+                String token = recipient.asText();
+                ObjectNode ticket = data.addObject();
+                if (unregisteredTokens.contains(token) || random.nextDouble() < ticketErrorRate) {
+                    ticket.put("status", "error");
+                    ticket.put("message", "\"" + token + "\" is not a registered push notification recipient");
+                    ticket.putObject("details").put("error", "DeviceNotRegistered");
+                } else {
+                    String id = String.format("%08x-0000-4000-8000-%012x", random.nextInt(), nextTicketId.incrementAndGet());
+                    receipts.put(id, new Receipt(now, random.nextDouble() < receiptErrorRate));
+                    ticket.put("status", "ok");
+                    ticket.put("id", id);
+                }
+            }
+        }
+        _respond(exchange, 200, mapper.writeValueAsBytes(response), sendLatency.nextMillis(random));
+    }
+
+    private void _getReceipts(HttpExchange exchange) throws IOException {
+        receiptRequests.incrementAndGet();
+        Random random = ThreadLocalRandom.current();
+        JsonNode body = _readBody(exchange);
+        if (_failed(exchange, random, receiptsLatency)) return;
+
+        long sentBefore = System.currentTimeMillis() - receiptDelayMillis;
+        ObjectNode response = mapper.createObjectNode();
+        ObjectNode data = response.putObject("data");
+        for (JsonNode idNode : body.path("ids")) {
+            String id = idNode.asText();
+            Receipt receipt = receipts.get(id);
+            if (receipt == null || receipt.sentAt > sentBefore) continue;
+            ObjectNode node = data.putObject(id);
+            if (receipt.error) {
+                node.put("status", "error");
+                node.put("message", "Message too big");
+                node.putObject("details").put("error", "MessageTooBig");
+            } else {
+                node.put("status", "ok");
+            }
+        }
+        _respond(exchange, 200, mapper.writeValueAsBytes(response), receiptsLatency.nextMillis(random));
+    }
+
+    private boolean _failed(HttpExchange exchange, Random random, Latency latency) throws IOException {
+        double roll = random.nextDouble();
+        if (roll < tooManyRequestsRate) {
+            _respond(exchange, 429, _errors("TOO_MANY_REQUESTS", "Rate limit exceeded"), latency.nextMillis(random));
+            return true;
+        }
+        if (roll < tooManyRequestsRate + serverErrorRate) {
+            _respond(exchange, 500, _errors("INTERNAL_SERVER_ERROR", "An unknown error occurred"), latency.nextMillis(random));
+            return true;
+        }
+        return false;
+    }
+
+    private byte[] _errors(String code, String message) throws IOException {
+        ObjectNode response = mapper.createObjectNode();
+        response.putArray("errors").addObject().put("code", code).put("message", message);
+        return mapper.writeValueAsBytes(response);
+    }
+
+    private JsonNode _readBody(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            return mapper.readTree(is);
+        }
+    }
+
+    private void _respond(HttpExchange exchange, int status, byte[] body, long delayMillis) throws IOException {
+        if (delayMillis <= 0) {
+            _write(exchange, status, body);
+            return;
+        }
+        timer.schedule(() -> {
+            try {
+                _write(exchange, status, body);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void _write(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static Thread _daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private static final class Receipt {
+        private final long sentAt;
+        private final boolean error;
+
+        Receipt(long sentAt, boolean error) {
+            this.sentAt = sentAt;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.Status;
+import io.github.robin536180.exposerversdk.enums.TicketError;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpoStandInServerTest {
+
+    @Test
+    public void answersOneTicketPerRecipientAndDelaysReceipts() throws Exception {
+        try (ExpoStandInServer server = new ExpoStandInServer()) {
+            server.unregisteredTokens.add("ExponentPushToken[gone]");
+            server.receiptDelayMillis = 60_000;
+            server.sendLatency = ExpoStandInServer.Latency.fixed(20);
+            PushClient client = new PushClient();
+            client.setBaseApiUrl(server.getBaseApiUrl());
+
+            List<ExpoPushTicket> tickets = client.sendPushNotificationsAsync(Arrays.asList(
+                    new ExpoPushMessage(Arrays.asList("ExponentPushToken[a]", "ExponentPushToken[gone]")),
+                    new ExpoPushMessage("ExponentPushToken[b]"))).join();
+
+            assertEquals(3, tickets.size());
+            assertEquals(Status.OK, tickets.get(0).getStatus());
+            assertEquals(TicketError.DEVICENOTREGISTERED, tickets.get(1).getDetails().getError());
+            assertEquals(Status.OK, tickets.get(2).getStatus());
+            assertEquals(3, server.getRecipientCount());
+
+            List<String> ids = Arrays.asList(tickets.get(0).getId(), tickets.get(2).getId());
+            assertTrue(client.getPushNotificationReceiptsAsync(ids).join().isEmpty());
+            server.receiptDelayMillis = 0;
+            List<ExpoPushReceipt> receipts = client.getPushNotificationReceiptsAsync(ids).join();
+            assertEquals(2, receipts.size());
+            assertEquals(Status.OK, receipts.get(0).getStatus());
+        }
+    }
+
+    @Test
+    public void injectsRateLimiting() throws Exception {
+        try (ExpoStandInServer server = new ExpoStandInServer()) {
+            server.tooManyRequestsRate = 1;
+            PushClient client = new PushClient();
+            client.setBaseApiUrl(server.getBaseApiUrl());
+
+            PushNotificationException e = assertThrows(PushNotificationException.class, () -> client.sendPushNotificationsAsync(
+                    Collections.singletonList(new ExpoPushMessage("ExponentPushToken[a]"))).join());
+            PushNotificationErrorsException errors = (PushNotificationErrorsException) e.exception;
+            assertEquals("TOO_MANY_REQUESTS", errors.errors.get(0).getCode());
+        }
+    }
+}
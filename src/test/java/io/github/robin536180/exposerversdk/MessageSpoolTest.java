@@ -0,0 +1,103 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private static ExpoPushMessage message(String to, String title) {
+        ExpoPushMessage message = new ExpoPushMessage(to);
+        message.setTitle(title);
+        return message;
+    }
+
+    @Test
+    public void unacknowledgedMessagesReplayAfterReopen() throws IOException {
+        try (MessageSpool<ExpoPushMessage> spool = new MessageSpool<>(directory, ExpoPushMessage.class)) {
+            spool.appendAll(Arrays.asList(message("Recipient 1", "one"), message("Recipient 2", "two"), message("Recipient 3", "three")));
+            List<MessageSpool.Entry<ExpoPushMessage>> entries = spool.poll(2);
+            assertEquals(2, entries.size());
+            assertEquals("one", entries.get(0).getMessage().getTitle());
+            spool.acknowledge(entries.subList(0, 1));
+            // The second entry is in flight when the process goes away.
+        }
+
+        try (MessageSpool<ExpoPushMessage> spool = new MessageSpool<>(directory, ExpoPushMessage.class)) {
+            assertEquals(2, spool.pendingCount());
+            List<MessageSpool.Entry<ExpoPushMessage>> entries = spool.poll(100);
+            assertEquals("two", entries.get(0).getMessage().getTitle());
+            assertEquals("Recipient 3", entries.get(1).getMessage().getTo().get(0));
+            assertTrue(entries.get(1).getSeq() > entries.get(0).getSeq());
+        }
+    }
+
+    @Test
+    public void releasedMessagesArePolledAgainInOrder() throws IOException {
+        try (MessageSpool<ExpoPushMessage> spool = new MessageSpool<>(directory, ExpoPushMessage.class)) {
+            spool.append(message("Recipient 1", "one"));
+            spool.append(message("Recipient 2", "two"));
+            List<MessageSpool.Entry<ExpoPushMessage>> entries = spool.poll(100);
+            assertEquals(0, spool.pendingCount());
+            assertEquals(2, spool.inFlightCount());
+
+            spool.release(entries);
+            assertEquals(2, spool.pendingCount());
+            assertEquals("one", spool.poll(1).get(0).getMessage().getTitle());
+        }
+    }
+
+    @Test
+    public void fullyAcknowledgedSegmentsAreDeleted() throws IOException {
+        try (MessageSpool<ExpoPushMessage> spool = new MessageSpool<>(directory, ExpoPushMessage.class, 1024)) {
+            for (int i = 0; i < 100; i++) {
+                spool.append(message("Recipient " + i, "title " + i));
+            }
+            assertTrue(spool.segmentCount() > 1);
+
+            List<MessageSpool.Entry<ExpoPushMessage>> entries;
+            while (!(entries = spool.poll(10)).isEmpty()) {
+                spool.acknowledge(entries);
+            }
+            assertEquals(1, spool.segmentCount());
+        }
+
+        try (MessageSpool<ExpoPushMessage> spool = new MessageSpool<>(directory, ExpoPushMessage.class, 1024)) {
+            assertEquals(0, spool.pendingCount());
+        }
+    }
+
+    @Test
+    public void sendSpooledPushNotificationsAcknowledgesOnTicketsAndReleasesOnFailure() throws IOException, PushClientException {
+        final String TICKETS_JSON = "{\"data\": [{\"status\": \"ok\", \"id\": \"1\"}, {\"status\": \"ok\", \"id\": \"2\"}]}";
+
+        PushClient client = new PushClient();
+        try (MessageSpool<ExpoPushMessage> spool = new MessageSpool<>(directory, ExpoPushMessage.class)) {
+            spool.appendAll(Arrays.asList(message("Recipient 1", "one"), message("Recipient 2", "two")));
+
+            CompletableFuture<String> failure = new CompletableFuture<>();
+            failure.completeExceptionally(new IOException("Connection reset"));
+            client.pushServerResolver = (url, json) -> failure;
+            assertThrows(CompletionException.class, () -> client.sendSpooledPushNotificationsAsync(spool).join());
+            assertEquals(2, spool.pendingCount());
+
+            client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(TICKETS_JSON);
+            List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs = client.sendSpooledPushNotificationsAsync(spool).join();
+            assertEquals(2, pairs.size());
+            assertEquals("two", pairs.get(1).getMessage().getTitle());
+            assertEquals("2", pairs.get(1).getTicket().getId());
+            assertEquals(0, spool.pendingCount());
+            assertEquals(0, spool.inFlightCount());
+        }
+    }
+}
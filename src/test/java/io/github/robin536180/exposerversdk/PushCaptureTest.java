@@ -0,0 +1,94 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.helpers.PushCapture;
+import io.github.robin536180.exposerversdk.helpers.RecordingPushServerResolver;
+import io.github.robin536180.exposerversdk.helpers.ReplayPushServerResolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushCaptureTest {
+    private static final String TICKETS = "{\"data\":[{\"status\":\"ok\",\"id\":\"%s\"}]}";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void recordedExchangesReplayPerEndpointInOrder() throws Exception {
+        Path file = directory.resolve("capture.bin");
+        int[] sent = {0};
+        try (RecordingPushServerResolver recorder = new RecordingPushServerResolver((url, json) -> {
+            if (url.getPath().endsWith("/push/getReceipts")) {
+                return CompletableFuture.completedFuture("{\"data\":{\"a\":{\"status\":\"ok\"}}}");
+            }
+            if (++sent[0] == 3) {
+                CompletableFuture<String> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IOException("connection reset"));
+                return failed;
+            }
+            return CompletableFuture.completedFuture(String.format(TICKETS, "t" + sent[0]));
+        }, file)) {
+            PushClient client = new PushClient();
+            client.pushServerResolver = recorder;
+            _send(client, "a");
+            client.getPushNotificationReceiptsAsync(Collections.singletonList("a")).join();
+            _send(client, "b");
+            assertThrows(CompletionException.class, () -> _send(client, "c"));
+            assertEquals(4, recorder.getRecordedCount());
+        }
+
+        try (PushCapture.Reader reader = new PushCapture.Reader(file)) {
+            PushCapture.Record first = reader.next();
+            assertEquals("/--/api/v2/push/send", first.getPath());
+            assertTrue(first.getRequest().contains("ExponentPushToken[a]"));
+            assertEquals(String.format(TICKETS, "t1"), first.getResponse());
+            assertTrue(first.getLatencyNanos() >= 0);
+        }
+
+        try (ReplayPushServerResolver replay = new ReplayPushServerResolver(file)) {
+            replay.latencyScale = 0;
+            PushClient client = new PushClient();
+            client.pushServerResolver = replay;
+            // The receipts request comes first this time; the send records before it are buffered.
+            assertEquals(1, client.getPushNotificationReceiptsAsync(Collections.singletonList("a")).join().size());
+            assertEquals("t1", _send(client, "x").get(0).getId());
+            assertEquals("t2", _send(client, "y").get(0).getId());
+            CompletionException e = assertThrows(CompletionException.class, () -> _send(client, "z"));
+            assertTrue(e.getMessage().contains("connection reset"), e.getMessage());
+            assertThrows(CompletionException.class, () -> _send(client, "z"));
+
+            replay.loop = true;
+            assertEquals("t1", _send(client, "x").get(0).getId());
+        }
+    }
+
+    @Test
+    public void replayKeepsScaledLatency() throws Exception {
+        Path file = directory.resolve("capture.bin");
+        try (PushCapture.Writer writer = new PushCapture.Writer(file)) {
+            writer.write(new PushCapture.Record("/--/api/v2/push/send", "[]", String.format(TICKETS, "slow"), false, 0, 400_000_000L));
+        }
+
+        try (ReplayPushServerResolver replay = new ReplayPushServerResolver(file)) {
+            replay.latencyScale = 0.25;
+            long start = System.nanoTime();
+            String response = replay.postAsync(new URL("https://exp.host/--/api/v2/push/send"), "[]").join();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(String.format(TICKETS, "slow"), response);
+            assertTrue(elapsedMillis >= 100 && elapsedMillis < 400, String.valueOf(elapsedMillis));
+        }
+    }
+
+    private static List<ExpoPushTicket> _send(PushClient client, String token) throws PushNotificationException {
+        return client.sendPushNotificationsAsync(
+                Collections.singletonList(new ExpoPushMessage("ExponentPushToken[" + token + "]"))).join();
+    }
+}
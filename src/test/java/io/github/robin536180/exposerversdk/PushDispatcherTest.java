@@ -0,0 +1,127 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.Priority;
+import io.github.robin536180.exposerversdk.metrics.PushMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushDispatcherTest {
+
+    private static final String[] PRIORITIES = {"high", "default", "normal"};
+
+    private final List<String> requests = new ArrayList<>();
+    private final Deque<CompletableFuture<String>> responses = new ArrayDeque<>();
+
+    private PushClient client() throws PushClientException {
+        PushClient client = new PushClient();
+        client.PUSH_NOTIFICATION_CHUNK_LIMIT = 1;
+        client.pushServerResolver = (url, json) -> {
+            String priority = "none";
+            for (String p : PRIORITIES) {
+                if (json.contains("\"priority\":\"" + p + "\"")) priority = p;
+            }
+            requests.add(priority);
+            CompletableFuture<String> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        };
+        return client;
+    }
+
+    private static List<ExpoPushMessage> messages(int count, Priority priority) {
+        List<ExpoPushMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ExpoPushMessage message = new ExpoPushMessage("ExponentPushToken[" + priority + i + "]");
+            message.setPriority(priority);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private void completeNext() {
+        responses.poll().complete("{\"data\":[{\"status\":\"ok\",\"id\":\"" + requests.size() + "\"}]}");
+    }
+
+    @Test
+    public void lanesShareRequestSlotsByWeight() throws PushClientException {
+        PushDispatcher<ExpoPushMessage> dispatcher = new PushDispatcher<>(client()).setMaxInFlight(1);
+
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> bulk = dispatcher.submit(messages(20, Priority.NORMAL));
+        dispatcher.submit(messages(20, Priority.OK));
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> urgent = dispatcher.submit(messages(5, Priority.ERROR));
+        assertEquals(Collections.singletonList("normal"), requests);
+        assertEquals(19, dispatcher.queuedCount(Priority.NORMAL));
+
+        for (int i = 0; i < 13; i++) completeNext();
+        assertEquals(Arrays.asList("normal",
+                "high", "default", "high", "high", "default", "high", "normal", "high", "default", "default", "default", "default", "default"),
+                requests);
+        assertTrue(urgent.isDone());
+        assertEquals(5, urgent.join().size());
+        assertFalse(bulk.isDone());
+
+        while (!responses.isEmpty()) completeNext();
+        assertEquals(20, bulk.join().size());
+        assertEquals(0, dispatcher.inFlightCount(Priority.NORMAL));
+    }
+
+    @Test
+    public void laneLimitsAreEnforced() throws PushClientException {
+        PushDispatcher<ExpoPushMessage> dispatcher = new PushDispatcher<>(client())
+                .setLane(Priority.NORMAL, 1, 2, 3);
+
+        dispatcher.submit(messages(2, Priority.NORMAL));
+        dispatcher.submit(messages(3, Priority.NORMAL));
+        assertEquals(2, dispatcher.inFlightCount(Priority.NORMAL));
+        assertEquals(3, dispatcher.queuedCount(Priority.NORMAL));
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.submit(messages(1, Priority.NORMAL)));
+
+        // Another lane is not held up by the full one.
+        dispatcher.submit(messages(1, Priority.ERROR));
+        assertEquals(Arrays.asList("normal", "normal", "high"), requests);
+    }
+
+    @Test
+    public void chunksNeverMixPriorities() throws PushClientException {
+        PushClient client = client();
+        client.PUSH_NOTIFICATION_CHUNK_LIMIT = 100;
+        PushDispatcher<ExpoPushMessage> dispatcher = new PushDispatcher<>(client);
+        List<ExpoPushMessage> mixed = new ArrayList<>(messages(3, Priority.NORMAL));
+        mixed.addAll(messages(2, Priority.ERROR));
+        mixed.add(new ExpoPushMessage("ExponentPushToken[none]"));
+
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> result = dispatcher.submit(mixed);
+        assertEquals(3, requests.size());
+        assertTrue(requests.containsAll(Arrays.asList("high", "none", "normal")));
+        while (!responses.isEmpty()) completeNext();
+        assertEquals(3, result.join().size());
+    }
+
+    @Test
+    public void exceptionsWhileSendingReleaseTheLane() throws PushClientException {
+        PushClient client = client();
+        int[] calls = {0};
+        client.setPushMetrics(new PushMetrics() {
+            @Override
+            public void requestStarted(Operation operation, int items) {
+                if (++calls[0] == 1) throw new IllegalStateException("metrics are broken");
+            }
+        });
+        PushDispatcher<ExpoPushMessage> dispatcher = new PushDispatcher<>(client).setLane(Priority.NORMAL, 1, 1, 10);
+
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> failed = dispatcher.submit(messages(1, Priority.NORMAL));
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals(0, dispatcher.inFlightCount(Priority.NORMAL));
+
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> next = dispatcher.submit(messages(1, Priority.NORMAL));
+        assertEquals(1, dispatcher.inFlightCount(Priority.NORMAL));
+        completeNext();
+        assertEquals(1, next.join().size());
+    }
+}
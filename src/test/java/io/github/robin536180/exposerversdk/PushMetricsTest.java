@@ -0,0 +1,84 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.ReceiptError;
+import io.github.robin536180.exposerversdk.enums.Status;
+import io.github.robin536180.exposerversdk.enums.TicketError;
+import io.github.robin536180.exposerversdk.metrics.DefaultPushMetrics;
+import io.github.robin536180.exposerversdk.metrics.LatencyHistogram;
+import io.github.robin536180.exposerversdk.metrics.PushMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushMetricsTest {
+
+    @Test
+    public void histogramPercentilesStayWithinABucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+
+        long p50 = histogram.getValueAtPercentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 625_000, String.valueOf(p50));
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, String.valueOf(p99));
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(50));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void clientReportsRequestsTicketsAndReceipts() throws PushClientException {
+        PushClient client = new PushClient();
+        DefaultPushMetrics metrics = new DefaultPushMetrics();
+        client.setPushMetrics(metrics);
+        client.pushServerResolver = (url, json) -> {
+            if (url.getPath().endsWith("/push/send")) {
+                return CompletableFuture.completedFuture("{\"data\":["
+                        + "{\"status\":\"ok\",\"id\":\"a\"},"
+                        + "{\"status\":\"error\",\"message\":\"gone\",\"details\":{\"error\":\"DeviceNotRegistered\"}}]}");
+            }
+            return CompletableFuture.completedFuture("{\"data\":{"
+                    + "\"a\":{\"status\":\"error\",\"message\":\"big\",\"details\":{\"error\":\"MessageTooBig\"}}}}");
+        };
+
+        client.sendPushNotificationsAsync(Collections.singletonList(
+                new ExpoPushMessage(Arrays.asList("ExponentPushToken[a]", "ExponentPushToken[b]")))).join();
+        client.getPushNotificationReceiptsAsync(Collections.singletonList("a")).join();
+
+        assertEquals(1, metrics.getRequestCount(PushMetrics.Operation.SEND));
+        assertEquals(2, metrics.getItemCount(PushMetrics.Operation.SEND));
+        assertEquals(0, metrics.getInFlight(PushMetrics.Operation.SEND));
+        assertEquals(1, metrics.getLatency(PushMetrics.Operation.SEND).getCount());
+        assertEquals(1, metrics.getTicketCount(Status.OK));
+        assertEquals(1, metrics.getTicketErrorCount(TicketError.DEVICENOTREGISTERED));
+        assertEquals(1, metrics.getRequestCount(PushMetrics.Operation.RECEIPTS));
+        assertEquals(1, metrics.getReceiptErrorCount(ReceiptError.MESSAGETOOBIG));
+    }
+
+    @Test
+    public void failedRequestsAreCounted() throws PushClientException {
+        PushClient client = new PushClient();
+        DefaultPushMetrics metrics = new DefaultPushMetrics();
+        client.pushMetrics = metrics;
+        client.pushServerResolver = (url, json) -> {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new java.io.IOException("connection reset"));
+            return failed;
+        };
+
+        CompletableFuture<List<ExpoPushTicket>> result = client.sendPushNotificationsAsync(
+                Collections.singletonList(new ExpoPushMessage("ExponentPushToken[a]")));
+        assertThrows(Exception.class, result::join);
+        assertEquals(1, metrics.getFailureCount(PushMetrics.Operation.SEND));
+        assertEquals(0, metrics.getInFlight(PushMetrics.Operation.SEND));
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.enums.Status;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushProcessorTest {
+
+    @Test
+    public void everyRecipientGetsAPairWithLimitedRequestsInFlight() throws Exception {
+        ExecutorService server = Executors.newFixedThreadPool(8);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        PushClient client = _client((url, json) -> CompletableFuture.supplyAsync(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return _tickets(json);
+        }, server));
+
+        PushProcessor<ExpoPushMessage> processor = new PushProcessor<>(client, 2, 10);
+        MessagePublisher publisher = new MessagePublisher(450);
+        publisher.subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        assertEquals(450, subscriber.pairs.size());
+        assertTrue(subscriber.pairs.stream().allMatch(p -> p.ticket.getStatus() == Status.OK));
+        assertTrue(maxInFlight.get() <= 2, String.valueOf(maxInFlight.get()));
+        server.shutdown();
+    }
+
+    @Test
+    public void upstreamDemandStopsWhenDownstreamDoesNotRequest() throws Exception {
+        PushClient client = _client((url, json) -> CompletableFuture.completedFuture(_tickets(json)));
+        PushProcessor<ExpoPushMessage> processor = new PushProcessor<>(client, 2, 10);
+        MessagePublisher publisher = new MessagePublisher(100_000);
+        publisher.subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber(5);
+        processor.subscribe(subscriber);
+
+        Thread.sleep(100);
+        assertEquals(5, subscriber.pairs.size());
+        // Two chunks of pairs may wait, plus two chunks worth of messages requested to fill the slots.
+        assertTrue(publisher.requested.get() <= 4 * 100 + 5, String.valueOf(publisher.requested.get()));
+
+        subscriber.subscription.cancel();
+        assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    public void fanOutIsSentWithinTheInFlightLimit() throws Exception {
+        ExecutorService server = Executors.newFixedThreadPool(8);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        PushClient client = _client((url, json) -> CompletableFuture.supplyAsync(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return _tickets(json);
+        }, server));
+
+        PushProcessor<ExpoPushMessage> processor = new PushProcessor<>(client, 2, 10);
+        new MessagePublisher(20, 250).subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+
+        assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+        assertNull(subscriber.error);
+        assertEquals(5000, subscriber.pairs.size());
+        assertTrue(maxInFlight.get() <= 2, String.valueOf(maxInFlight.get()));
+        server.shutdown();
+    }
+
+    @Test
+    public void fanOutLimitsUpstreamDemandByRecipients() throws Exception {
+        PushClient client = _client((url, json) -> CompletableFuture.completedFuture(_tickets(json)));
+        PushProcessor<ExpoPushMessage> processor = new PushProcessor<>(client, 2, 10);
+        MessagePublisher publisher = new MessagePublisher(1000, 250);
+        publisher.subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber(5);
+        processor.subscribe(subscriber);
+
+        Thread.sleep(100);
+        assertEquals(5, subscriber.pairs.size());
+        // One message already fills more than the two request slots.
+        assertTrue(publisher.requested.get() <= 2, String.valueOf(publisher.requested.get()));
+        subscriber.subscription.cancel();
+    }
+
+    @Test
+    public void failedRequestsBecomeErrorTickets() throws Exception {
+        PushClient client = _client((url, json) -> {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new java.io.IOException("connection reset"));
+            return failed;
+        });
+        PushProcessor<ExpoPushMessage> processor = new PushProcessor<>(client);
+        new MessagePublisher(3).subscribe(processor);
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, subscriber.pairs.size());
+        assertEquals(Status.ERROR, subscriber.pairs.get(0).ticket.getStatus());
+        assertEquals("connection reset", subscriber.pairs.get(0).ticket.getMessage());
+    }
+
+    private static PushClient _client(io.github.robin536180.exposerversdk.helpers.PushServerResolver resolver) throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = resolver;
+        return client;
+    }
+
+    private static String _tickets(String json) {
+        int recipients = json.split("ExponentPushToken\\[", -1).length - 1;
+        StringBuilder sb = new StringBuilder("{\"data\":[");
+        for (int i = 0; i < recipients; i++) {
+            sb.append(i > 0 ? "," : "").append("{\"status\":\"ok\",\"id\":\"").append(i).append("\"}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static class MessagePublisher implements Publisher<ExpoPushMessage> {
+        private final int count;
+        private final int fanOut;
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+
+        MessagePublisher(int count) {
+            this(count, 1);
+        }
+
+        MessagePublisher(int count, int fanOut) {
+            this.count = count;
+            this.fanOut = fanOut;
+        }
+
+        private ExpoPushMessage _message(int index) {
+            List<String> to = new ArrayList<>(fanOut);
+            for (int i = 0; i < fanOut; i++) {
+                to.add("ExponentPushToken[" + index + "-" + i + "]");
+            }
+            return new ExpoPushMessage(to);
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super ExpoPushMessage> subscriber) {
+            AtomicLong demand = new AtomicLong();
+            AtomicInteger wip = new AtomicInteger();
+            int[] next = {0};
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    requested.addAndGet(n);
+                    demand.addAndGet(n);
+                    if (wip.getAndIncrement() != 0) return;
+                    do {
+                        while (!cancelled && demand.get() > 0 && next[0] < count) {
+                            demand.decrementAndGet();
+                            subscriber.onNext(_message(next[0]++));
+                        }
+                        if (next[0] == count && !cancelled) {
+                            next[0]++;
+                            subscriber.onComplete();
+                        }
+                    } while (wip.decrementAndGet() != 0);
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static class CollectingSubscriber implements Subscriber<ExpoPushMessageTicketPair<ExpoPushMessage>> {
+        private final long initialRequest;
+        private final List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+
+        CollectingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(ExpoPushMessageTicketPair<ExpoPushMessage> pair) {
+            pairs.add(pair);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.robin536180.exposerversdk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushTokenDictionaryTest {
+
+    @Test
+    public void codecRoundTripsEncodableTokens() {
+        long[] words = new long[PushTokenCodec.WORDS];
+        for (String token : Arrays.asList(
+                "ExponentPushToken[xxxxxxxxxxxxxxxxxxxxxx]",
+                "ExpoPushToken[AbC-_09zZ]",
+                "ExponentPushToken[]",
+                "F5741A13-BCDA-434B-A316-5DC0E6FFA94F",
+                "",
+                "ExponentPushToken[0123456789012345678901234567890123456789]")) {
+            assertTrue(PushTokenCodec.encode(token, words, 0), token);
+            assertEquals(token, PushTokenCodec.decode(words, 0));
+        }
+
+        assertFalse(PushTokenCodec.encode("ExponentPushToken[01234567890123456789012345678901234567890]", words, 0));
+        assertFalse(PushTokenCodec.encode("ExponentPushToken[with space]", words, 0));
+        assertFalse(PushTokenCodec.encode("ExponentPushToken[abc", words, 0));
+        assertFalse(PushTokenCodec.encode("ExponentPushToken[\u00e9]", words, 0));
+    }
+
+    @Test
+    public void internStoresEachTokenOnce() {
+        PushTokenDictionary dictionary = new PushTokenDictionary(16);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            tokens.add("ExponentPushToken[" + Integer.toString(i, 36) + "]");
+        }
+        tokens.add("not [a] compact token");
+        tokens.add("ExponentPushToken[with space]");
+
+        int[] ids = dictionary.internAll(tokens);
+        int[] again = dictionary.internAll(tokens);
+        assertArrayEquals(ids, again);
+        assertEquals(tokens.size(), dictionary.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.get(i), dictionary.get(ids[i]));
+        }
+        assertEquals(tokens, dictionary.asList(ids));
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionary.get(tokens.size()));
+    }
+
+    @Test
+    public void dictionaryBackedRecipientsSerializeAsStrings() throws JsonProcessingException, PushClientException {
+        PushTokenDictionary dictionary = new PushTokenDictionary();
+        int[] audience = dictionary.internAll(Arrays.asList("ExponentPushToken[aaaa]", "ExpoPushToken[bbbb]"));
+
+        ExpoPushMessage message = new ExpoPushMessage(dictionary.asList(audience));
+        message.setTitle("Hello");
+        String json = new ObjectMapper().writeValueAsString(message);
+        assertEquals("{\"to\":[\"ExponentPushToken[aaaa]\",\"ExpoPushToken[bbbb]\"],\"title\":\"Hello\"}", json);
+
+        List<List<ExpoPushMessage>> chunks = new PushClient().chunkPushNotifications(Collections.singletonList(message));
+        assertEquals(Arrays.asList("ExponentPushToken[aaaa]", "ExpoPushToken[bbbb]"), chunks.get(0).get(0).getTo());
+    }
+}
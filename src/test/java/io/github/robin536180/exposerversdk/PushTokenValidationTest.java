@@ -0,0 +1,61 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushTokenValidationTest {
+
+    // The regex-based implementation isExponentPushToken used to have.
+    private static boolean referenceIsExponentPushToken(String token) {
+        if (token.matches("[a-zA-Z0-9]{8}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{4}-[a-zA-Z0-9]{12}")) return true;
+        if (!token.endsWith("]")) return false;
+        if (token.startsWith("ExponentPushToken[")) return true;
+        if (token.startsWith("ExpoPushToken[")) return true;
+        return false;
+    }
+
+    @Test
+    public void matchesTheRegexImplementation() {
+        List<String> tokens = new ArrayList<>(Arrays.asList(
+                "", "]", "[]", "ExpoPushToken[", "ExpoPushToken[]", "ExponentPushToken[]", "ExponentPushToken[x]",
+                "ExponentPushToken[x] ", "exponentPushToken[x]", "ExpoPushToken[xxxxxxxxxxxxxxxxxxxxxx]",
+                "F5741A13-BCDA-434B-A316-5DC0E6FFA94F", "F5741A13-BCDA-434B-A316-5DC0E6FFA94", "F5741A13-BCDA-434B-A316-5DC0E6FFA94F0",
+                "F5741A13_BCDA-434B-A316-5DC0E6FFA94F", "F5741A13-BCDA-434B-A316-5DC0E6FFA9\u00e9F", "F5741A13-BCDA-434B-A316-5DC0E6FFA9 F",
+                "F5741A13-BCDA-434B-A316-5DC0E6FF-94F", "ExponentPushToken xxxxxxxxxxxxxxxxxxxxxx"));
+
+        Random random = new Random(7);
+        char[] alphabet = "aZ09-_[] ExpoPushTokenExponent".toCharArray();
+        for (int i = 0; i < 20000; i++) {
+            char[] token = new char[random.nextInt(40)];
+            for (int j = 0; j < token.length; j++) token[j] = alphabet[random.nextInt(alphabet.length)];
+            String value = new String(token);
+            tokens.add(value);
+            tokens.add("ExponentPushToken[" + value);
+            if (value.length() >= 36) tokens.add(value.substring(0, 36));
+        }
+
+        for (String token : tokens) {
+            assertEquals(referenceIsExponentPushToken(token), PushClient.isExponentPushToken(token), token);
+        }
+    }
+
+    @Test
+    public void findInvalidPushTokensReturnsInvalidPositions() {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tokens.add(i % 7 == 0 ? "not a token " + i : "ExponentPushToken[" + i + "]");
+        }
+        tokens.set(1, null);
+
+        int[] invalid = PushClient.findInvalidPushTokens(tokens);
+        assertEquals(1 + (10000 + 6) / 7, invalid.length);
+        assertEquals(0, invalid[0]);
+        assertEquals(1, invalid[1]);
+        assertEquals(7, invalid[2]);
+        assertArrayEquals(invalid, PushClient.findInvalidPushTokens(tokens, true));
+        assertArrayEquals(invalid, PushClient.findInvalidPushTokens(new LinkedList<>(tokens)));
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipientDeduplicatorTest {
+
+    private static ExpoPushMessageCustomData<Integer> message(String title, List<String> to) {
+        ExpoPushMessageCustomData<Integer> message = new ExpoPushMessageCustomData<>(new ArrayList<>(to));
+        message.setTitle(title);
+        Map<String, Integer> data = new HashMap<>();
+        data.put("campaign", 7);
+        message.setData(data);
+        return message;
+    }
+
+    @Test
+    public void chunkingDropsRepeatedRecipientsOfTheSameContent() throws PushClientException {
+        PushClientCustomData<ExpoPushMessageCustomData<Integer>> client = new PushClientCustomData<>();
+        client.DEDUPLICATE_RECIPIENTS = true;
+
+        List<ExpoPushMessageCustomData<Integer>> messages = new ArrayList<>();
+        messages.add(message("Sale", Arrays.asList("a", "b", "a")));
+        messages.add(message("Sale", Arrays.asList("b", "c")));
+        messages.add(message("Other", Arrays.asList("a")));
+
+        List<List<ExpoPushMessageCustomData<Integer>>> chunks = client.chunkPushNotifications(messages);
+        assertEquals(1, chunks.size());
+        assertEquals(Arrays.asList("a", "b"), chunks.get(0).get(0).getTo());
+        assertEquals(Arrays.asList("c"), chunks.get(0).get(1).getTo());
+        assertEquals(Arrays.asList("a"), chunks.get(0).get(2).getTo());
+        assertEquals(2, client.duplicateRecipientsDropped.get());
+    }
+
+    @Test
+    public void overlappingSegmentsFillChunksWithDistinctRecipients() throws PushClientException {
+        PushClientCustomData<ExpoPushMessageCustomData<Integer>> client = new PushClientCustomData<>();
+        client.DEDUPLICATE_RECIPIENTS = true;
+
+        List<String> segmentA = new ArrayList<>();
+        List<String> segmentB = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            segmentA.add("ExponentPushToken[" + i + "]");
+            segmentB.add("ExponentPushToken[" + (i + 80000) + "]");
+        }
+        List<ExpoPushMessageCustomData<Integer>> messages = Arrays.asList(message("Sale", segmentA), message("Sale", segmentB));
+
+        List<List<ExpoPushMessageCustomData<Integer>>> chunks = client.chunkPushNotifications(messages);
+        Set<String> sent = new HashSet<>();
+        long total = 0;
+        for (List<ExpoPushMessageCustomData<Integer>> chunk : chunks) {
+            for (ExpoPushMessageCustomData<Integer> m : chunk) {
+                sent.addAll(m.getTo());
+                total += m.getTo().size();
+            }
+        }
+        assertEquals(180000, total);
+        assertEquals(180000, sent.size());
+        assertEquals(1800, chunks.size());
+        assertEquals(20000, client.duplicateRecipientsDropped.get());
+    }
+
+    @Test
+    public void deduplicationIsOffByDefault() throws PushClientException {
+        PushClientCustomData<ExpoPushMessageCustomData<Integer>> client = new PushClientCustomData<>();
+        List<ExpoPushMessageCustomData<Integer>> messages = new ArrayList<>(Collections.nCopies(10, message("Sale", Arrays.asList("?"))));
+        assertEquals(10, client.chunkPushNotifications(messages).get(0).size());
+        assertEquals(0, client.duplicateRecipientsDropped.get());
+    }
+
+    @Test
+    public void subclassesWithoutAContentKeyAreNotDeduplicatedAcrossMessages() throws PushClientException {
+        PushClientCustomData<CoalescedPushMessagesTest.CategoryMessage> client = new PushClientCustomData<>();
+        client.DEDUPLICATE_RECIPIENTS = true;
+
+        List<CoalescedPushMessagesTest.CategoryMessage> messages = Arrays.asList(
+                new CoalescedPushMessagesTest.CategoryMessage("news", "a"),
+                new CoalescedPushMessagesTest.CategoryMessage("sale", "a"));
+        List<List<CoalescedPushMessagesTest.CategoryMessage>> chunks = client.chunkPushNotifications(messages);
+        assertEquals(2, chunks.get(0).size());
+        assertEquals(0, client.duplicateRecipientsDropped.get());
+    }
+}
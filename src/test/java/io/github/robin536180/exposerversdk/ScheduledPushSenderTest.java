@@ -0,0 +1,185 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScheduledPushSenderTest {
+
+    private static final long HOUR = 3600_000;
+
+    private final List<String> requests = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    private PushClient client() throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> {
+            requests.add(json);
+            int count = json.split("ExponentPushToken").length - 1;
+            StringJoiner tickets = new StringJoiner(",", "{\"data\":[", "]}");
+            for (int i = 0; i < count; i++) tickets.add("{\"status\":\"ok\",\"id\":\"" + i + "\"}");
+            return CompletableFuture.completedFuture(tickets.toString());
+        };
+        return client;
+    }
+
+    private static ExpoPushMessage message(String to, String title) {
+        ExpoPushMessage message = new ExpoPushMessage("ExponentPushToken[" + to + "]");
+        message.setTitle(title);
+        return message;
+    }
+
+    @Test
+    public void messagesDueInTheSameTickShareChunks() throws IOException, PushClientException {
+        List<ExpoPushMessageTicketPair<ExpoPushMessage>> sent = new ArrayList<>();
+        try (ScheduledPushSender<ExpoPushMessage> sender = new ScheduledPushSender<>(client(), null, null, HOUR)) {
+            sender.deliveryListener = new ScheduledPushSender.DeliveryListener<ExpoPushMessage>() {
+                @Override
+                public void onSent(List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs) {
+                    sent.addAll(pairs);
+                }
+
+                @Override
+                public void onFailed(List<ExpoPushMessage> messages, Throwable throwable) {
+                    fail(throwable);
+                }
+            };
+
+            List<ExpoPushMessage> morning = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                morning.add(message("user" + i, "Good morning"));
+            }
+            sender.scheduleAll(morning.subList(0, 150), 9 * HOUR);
+            sender.scheduleAll(morning.subList(150, 250), 9 * HOUR + 500);
+            sender.schedule(message("late", "Good morning"), 10 * HOUR);
+            assertEquals(251, sender.size());
+
+            sender.tick(9 * HOUR - 1);
+            assertTrue(requests.isEmpty());
+
+            sender.tick(9 * HOUR + 999);
+            assertEquals(3, requests.size());
+            assertEquals(1, requests.get(0).split("\"title\"").length - 1);
+            assertEquals(250, sent.size());
+            assertSame(morning.get(0), sent.get(0).message);
+            assertSame(morning.get(249), sent.get(249).message);
+            assertEquals(1, sender.size());
+        }
+    }
+
+    @Test
+    public void scheduledMessagesSurviveRestart() throws IOException, PushClientException {
+        Path path = directory.resolve("scheduled.dat");
+        long cancelled;
+        try (ScheduledPushSender<ExpoPushMessage> sender = new ScheduledPushSender<>(client(), ExpoPushMessage.class, path, HOUR)) {
+            sender.schedule(message("a", "first"), 1000);
+            cancelled = sender.schedule(message("b", "second"), 1000);
+            sender.schedule(message("c", "third"), 5000);
+            assertTrue(sender.cancel(cancelled));
+            sender.tick(1000);
+            assertEquals(1, requests.size());
+        }
+
+        try (ScheduledPushSender<ExpoPushMessage> sender = new ScheduledPushSender<>(client(), ExpoPushMessage.class, path, HOUR)) {
+            assertEquals(1, sender.size());
+            assertFalse(sender.cancel(cancelled));
+            sender.tick(5000);
+            assertEquals(2, requests.size());
+            assertTrue(requests.get(1).contains("third"));
+            assertEquals(0, sender.size());
+        }
+    }
+
+    @Test
+    public void failedRequestsAreRetriedUntilExpoAnswers() throws IOException, PushClientException {
+        PushClient client = client();
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        client.pushServerResolver = (url, json) -> {
+            requests.add(json);
+            CompletableFuture<String> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        };
+        List<ExpoPushMessage> failed = new ArrayList<>();
+        try (ScheduledPushSender<ExpoPushMessage> sender = new ScheduledPushSender<>(client, null, null, HOUR)) {
+            sender.deliveryListener = new ScheduledPushSender.DeliveryListener<ExpoPushMessage>() {
+                @Override
+                public void onSent(List<ExpoPushMessageTicketPair<ExpoPushMessage>> pairs) {
+                }
+
+                @Override
+                public void onFailed(List<ExpoPushMessage> messages, Throwable throwable) {
+                    failed.addAll(messages);
+                }
+            };
+            sender.schedule(message("a", "retry me"), 1000);
+
+            sender.tick(1000);
+            assertEquals(1, requests.size());
+            assertEquals(1, sender.size());
+            responses.get(0).completeExceptionally(new IOException("Service unavailable"));
+            assertEquals(1, sender.size());
+            assertTrue(failed.isEmpty());
+
+            // Retried a tick after the failure.
+            sender.tick(System.currentTimeMillis() + HOUR);
+            assertEquals(2, requests.size());
+            responses.get(1).complete("{\"errors\":[{\"code\":\"VALIDATION_ERROR\",\"message\":\"bad\"}]}");
+            assertEquals(0, sender.size());
+            assertEquals(1, failed.size());
+        }
+    }
+
+    @Test
+    public void onlyRecipientsOfFailedChunksAreRetried() throws IOException, PushClientException {
+        for (boolean failFirst : new boolean[]{true, false}) {
+            requests.clear();
+            PushClient client = client();
+            client.PUSH_NOTIFICATION_CHUNK_LIMIT = 2;
+            List<CompletableFuture<String>> responses = new ArrayList<>();
+            client.pushServerResolver = (url, json) -> {
+                requests.add(json);
+                CompletableFuture<String> response = new CompletableFuture<>();
+                responses.add(response);
+                return response;
+            };
+            List<String> to = Arrays.asList("ExponentPushToken[r0]", "ExponentPushToken[r1]", "ExponentPushToken[r2]",
+                    "ExponentPushToken[r3]", "ExponentPushToken[r4]");
+            ExpoPushMessage message = new ExpoPushMessage(to);
+            message.setTitle("fan-out");
+            Path path = directory.resolve("fan-out-" + failFirst + ".dat");
+            try (ScheduledPushSender<ExpoPushMessage> sender = new ScheduledPushSender<>(client, ExpoPushMessage.class, path, HOUR)) {
+                sender.schedule(message, 1000);
+                sender.tick(1000);
+                assertEquals(3, requests.size());
+
+                String ok = "{\"data\":[{\"status\":\"ok\",\"id\":\"1\"},{\"status\":\"ok\",\"id\":\"2\"}]}";
+                if (failFirst) responses.get(1).completeExceptionally(new IOException("Service unavailable"));
+                responses.get(0).complete(ok);
+                responses.get(2).complete("{\"data\":[{\"status\":\"ok\",\"id\":\"3\"}]}");
+                if (!failFirst) responses.get(1).completeExceptionally(new IOException("Service unavailable"));
+                assertEquals(1, sender.size());
+            }
+
+            // The retry, with only the recipients of the failed chunk, is what survives a restart.
+            try (ScheduledPushSender<ExpoPushMessage> sender = new ScheduledPushSender<>(client, ExpoPushMessage.class, path, HOUR)) {
+                assertEquals(1, sender.size());
+                sender.tick(System.currentTimeMillis() + HOUR);
+                assertEquals(4, requests.size());
+                String retried = requests.get(3);
+                assertTrue(retried.contains("r2") && retried.contains("r3"), retried);
+                assertFalse(retried.contains("r0") || retried.contains("r1") || retried.contains("r4"), retried);
+                responses.get(3).complete("{\"data\":[{\"status\":\"ok\",\"id\":\"4\"},{\"status\":\"ok\",\"id\":\"5\"}]}");
+                assertEquals(0, sender.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SendBudgetTest {
+
+    @Test
+    public void tryAcquireTimesOutWithoutHoldingAnything() throws Exception {
+        SendBudget budget = new SendBudget(10, 1000);
+        assertTrue(budget.tryAcquire(4, 900, 0, TimeUnit.MILLISECONDS));
+        assertFalse(budget.tryAcquire(4, 200, 20, TimeUnit.MILLISECONDS));
+        assertEquals(6, budget.getAvailableRecipients());
+        assertEquals(100, budget.getAvailableBytes());
+
+        budget.release(4, 900);
+        assertEquals(10, budget.getAvailableRecipients());
+        assertEquals(1000, budget.getAvailableBytes());
+    }
+
+    @Test
+    public void oversizedRequestTakesTheWholeBudget() throws Exception {
+        SendBudget budget = new SendBudget(10, 1000);
+        assertTrue(budget.tryAcquire(50, 5000, 0, TimeUnit.MILLISECONDS));
+        assertEquals(0, budget.getAvailableRecipients());
+        budget.release(50, 5000);
+        assertEquals(10, budget.getAvailableRecipients());
+        assertEquals(1000, budget.getAvailableBytes());
+    }
+
+    @Test
+    public void submitBlocksUntilARequestCompletes() throws Exception {
+        List<CompletableFuture<String>> responses = new CopyOnWriteArrayList<>();
+        List<String> requests = new CopyOnWriteArrayList<>();
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            requests.add(json);
+            responses.add(response);
+            return response;
+        };
+        client.sendBudget = new SendBudget(1, 1 << 20);
+
+        CompletableFuture<List<ExpoPushTicket>> first = client.submitPushNotifications(_chunk(0));
+        assertThrows(TimeoutException.class, () -> client.submitPushNotifications(_chunk(1), 20, TimeUnit.MILLISECONDS));
+        assertEquals(1, requests.size());
+
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        Future<CompletableFuture<List<ExpoPushTicket>>> second = producer.submit(() -> client.submitPushNotifications(_chunk(2)));
+        Thread.sleep(50);
+        assertFalse(second.isDone());
+
+        responses.get(0).complete("{\"data\":[{\"status\":\"ok\",\"id\":\"a\"}]}");
+        assertEquals("a", first.get(1, TimeUnit.SECONDS).get(0).getId());
+        second.get(1, TimeUnit.SECONDS);
+        assertEquals(2, requests.size());
+        assertTrue(requests.get(1).contains("ExponentPushToken[2]"));
+
+        responses.get(1).completeExceptionally(new java.io.IOException("down"));
+        CompletableFuture<List<ExpoPushTicket>> failed = second.get();
+        assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+        assertEquals(1, client.sendBudget.getAvailableRecipients());
+        producer.shutdown();
+    }
+
+    private static List<ExpoPushMessage> _chunk(int token) {
+        List<ExpoPushMessage> chunk = new ArrayList<>();
+        chunk.add(new ExpoPushMessage(Collections.singletonList("ExponentPushToken[" + token + "]")));
+        return chunk;
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.metrics.PushMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantDispatcherTest {
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private static List<ExpoPushMessage> messages(String tenant, int count) {
+        List<ExpoPushMessage> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ExpoPushMessage message = new ExpoPushMessage("ExponentPushToken[" + i + "]");
+            message.setTitle(tenant);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static String tenantOf(String json) {
+        int start = json.indexOf("\"title\":\"") + 9;
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    private static String tickets(String json) {
+        int count = json.split("ExponentPushToken").length - 1;
+        StringJoiner tickets = new StringJoiner(",", "{\"data\":[", "]}");
+        for (int i = 0; i < count; i++) tickets.add("{\"status\":\"ok\",\"id\":\"" + i + "\"}");
+        return tickets.toString();
+    }
+
+    @Test
+    public void tenantsTakeTurnsByWeight() throws PushClientException {
+        PushClient client = new PushClient();
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+        client.pushServerResolver = (url, json) -> {
+            requests.add(tenantOf(json));
+            CompletableFuture<String> response = new CompletableFuture<>();
+            pending.add(response);
+            return response.thenApply(ignored -> tickets(json));
+        };
+
+        try (TenantDispatcher<ExpoPushMessage> dispatcher = new TenantDispatcher<>(client, 1)) {
+            dispatcher.setTenant("gold", 2, 4, 0, 1000000);
+            CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> campaign = dispatcher.submit("bulk", messages("bulk", 5000));
+            dispatcher.submit("small", messages("small", 300));
+            dispatcher.submit("gold", messages("gold", 400));
+            assertEquals(Collections.singletonList("bulk"), requests);
+
+            for (int i = 0; i < 9; i++) pending.get(i).complete("");
+            assertEquals(Arrays.asList("bulk", "bulk", "small", "gold", "gold", "bulk", "small", "gold", "gold", "bulk"), requests);
+            assertEquals(4600, dispatcher.getStats("bulk").getQueuedRecipients());
+            assertEquals(300, dispatcher.getStats("bulk").getSentRecipients());
+
+            for (int i = 9; i < pending.size(); i++) pending.get(i).complete("");
+            assertEquals(5000, campaign.join().size());
+            assertEquals(5000, dispatcher.getStats("bulk").getSentRecipients());
+            assertEquals(0, dispatcher.getStats("small").getInFlight());
+        }
+    }
+
+    @Test
+    public void queueLimitRejectsSubmissions() throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> new CompletableFuture<>();
+        try (TenantDispatcher<ExpoPushMessage> dispatcher = new TenantDispatcher<>(client)) {
+            dispatcher.setTenant("a", 1, 1, 0, 250);
+            dispatcher.submit("a", messages("a", 100));
+            dispatcher.submit("a", messages("a", 200));
+            assertThrows(RejectedExecutionException.class, () -> dispatcher.submit("a", messages("a", 100)));
+            assertEquals(200, dispatcher.getStats("a").getQueuedRecipients());
+            assertEquals(1, dispatcher.getStats("a").getRejectedSubmissions());
+            // Other tenants are unaffected.
+            dispatcher.submit("b", messages("b", 100));
+            assertEquals(1, dispatcher.getStats("b").getInFlight());
+        }
+    }
+
+    @Test
+    public void rateLimitDefersChunks() throws PushClientException {
+        PushClient client = new PushClient();
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(tickets(json));
+        AtomicLong now = new AtomicLong();
+        try (TenantDispatcher<ExpoPushMessage> dispatcher = new TenantDispatcher<>(client)) {
+            dispatcher.nanoTime = now::get;
+            dispatcher.setTenant("limited", 1, 4, 1000, 1000000);
+            CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> result = dispatcher.submit("limited", messages("limited", 1300));
+            // The bucket starts with one second's worth, then has to wait for the clock.
+            assertEquals(1000, dispatcher.getStats("limited").getSentRecipients());
+            assertEquals(300, dispatcher.getStats("limited").getQueuedRecipients());
+            assertFalse(result.isDone());
+
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(300));
+            assertEquals(1300, result.join().size());
+        }
+    }
+
+    @Test
+    public void exceptionsWhileSendingFailTheChunkOnly() throws PushClientException {
+        PushClient client = new PushClient();
+        AtomicInteger calls = new AtomicInteger();
+        client.setPushMetrics(new PushMetrics() {
+            @Override
+            public void requestStarted(Operation operation, int items) {
+                if (calls.incrementAndGet() == 1) throw new IllegalStateException("metrics are broken");
+            }
+        });
+        client.pushServerResolver = (url, json) -> {
+            if (calls.get() == 2) throw new IllegalStateException("resolver is broken");
+            return CompletableFuture.completedFuture(tickets(json));
+        };
+        try (TenantDispatcher<ExpoPushMessage> dispatcher = new TenantDispatcher<>(client, 1)) {
+            CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> first = dispatcher.submit("a", messages("a", 1));
+            CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> second = dispatcher.submit("a", messages("a", 1));
+            assertThrows(CompletionException.class, first::join);
+            assertThrows(CompletionException.class, second::join);
+            assertEquals(1, dispatcher.submit("a", messages("a", 1)).join().size());
+            assertEquals(0, dispatcher.getStats("a").getInFlight());
+        }
+    }
+
+    @Test
+    public void closeCancelsQueuedChunks() throws PushClientException {
+        PushClient client = new PushClient();
+        CompletableFuture<String> response = new CompletableFuture<>();
+        client.pushServerResolver = (url, json) -> response;
+        TenantDispatcher<ExpoPushMessage> dispatcher = new TenantDispatcher<>(client);
+        dispatcher.setTenant("a", 1, 1, 0, 1000);
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> sending = dispatcher.submit("a", messages("a", 1));
+        CompletableFuture<List<ExpoPushMessageTicketPair<ExpoPushMessage>>> queued = dispatcher.submit("a", messages("a", 1));
+
+        dispatcher.close();
+        CompletionException e = assertThrows(CompletionException.class, queued::join);
+        assertTrue(e.getCause() instanceof CancellationException);
+        assertEquals(0, dispatcher.getStats("a").getQueuedRecipients());
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.submit("a", messages("a", 1)));
+
+        response.complete(tickets("ExponentPushToken[0]"));
+        assertEquals(1, sending.join().size());
+        assertNull(dispatcher.getStats("unknown"));
+    }
+}
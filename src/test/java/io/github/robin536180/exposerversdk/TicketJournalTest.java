@@ -0,0 +1,116 @@
+package io.github.robin536180.exposerversdk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void pendingTicketsSurviveReopen() throws IOException {
+        Path path = directory.resolve("tickets.journal");
+
+        try (TicketJournal journal = new TicketJournal(path)) {
+            journal.record("id-1", 1000L, "ExponentPushToken[aaaaaaaaaaaaaaaaaaaaaa]");
+            journal.record("id-2", 2000L, "ExponentPushToken[bbbbbbbbbbbbbbbbbbbbbb]");
+            journal.record("id-3", 3000L, null);
+            journal.acknowledge(Arrays.asList("id-2"));
+        }
+
+        try (TicketJournal journal = new TicketJournal(path)) {
+            assertEquals(Arrays.asList("id-1", "id-3"), journal.getPendingTicketIds());
+            assertEquals(1000L, journal.getPendingTicket("id-1").getSentAt());
+            assertEquals("ExponentPushToken[aaaaaaaaaaaaaaaaaaaaaa]", journal.getPendingTicket("id-1").getCorrelation());
+            assertNull(journal.getPendingTicket("id-3").getCorrelation());
+        }
+    }
+
+    @Test
+    public void compactionKeepsOnlyPendingTickets() throws IOException {
+        Path path = directory.resolve("tickets.journal");
+
+        try (TicketJournal journal = new TicketJournal(path)) {
+            List<String> acknowledged = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                journal.record("id-" + i, i, "token-" + i);
+                if (i != 500) acknowledged.add("id-" + i);
+            }
+            journal.acknowledge(acknowledged);
+            journal.compact();
+            journal.record("id-after", 0, null);
+        }
+
+        try (TicketJournal journal = new TicketJournal(path)) {
+            assertEquals(Arrays.asList("id-500", "id-after"), journal.getPendingTicketIds());
+            assertEquals("token-500", journal.getPendingTicket("id-500").getCorrelation());
+        }
+    }
+
+    @Test
+    public void clientJournalsTicketsAndAcknowledgesReceipts() throws IOException, PushClientException, ExecutionException, InterruptedException {
+        final String TICKETS_JSON = "{\"data\": [" +
+                "{\"status\": \"ok\", \"id\": \"ticket-1\"}," +
+                "{\"status\": \"error\", \"message\": \"not registered\", \"details\": {\"error\": \"DeviceNotRegistered\"}}," +
+                "{\"status\": \"ok\", \"id\": \"ticket-3\"}" +
+                "]}";
+        final String RECEIPTS_JSON = "{\"data\": {\"ticket-1\": {\"status\": \"ok\"}}}";
+
+        Path path = directory.resolve("tickets.journal");
+        PushClient client = new PushClient();
+        client.ticketJournal = new TicketJournal(path);
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(
+                url.getPath().endsWith("/push/send") ? TICKETS_JSON : RECEIPTS_JSON);
+
+        List<ExpoPushMessage> messages = new ArrayList<>();
+        messages.add(new ExpoPushMessage(Arrays.asList("Recipient 1", "Recipient 2")));
+        messages.add(new ExpoPushMessage("Recipient 3"));
+        client.sendPushNotificationsAsync(messages).get();
+
+        assertEquals(Arrays.asList("ticket-1", "ticket-3"), client.ticketJournal.getPendingTicketIds());
+        assertEquals("Recipient 3", client.ticketJournal.getPendingTicket("ticket-3").getCorrelation());
+
+        client.getPushNotificationReceiptsAsync(client.ticketJournal.getPendingTicketIds()).get();
+        assertEquals(Collections.singletonList("ticket-3"), client.ticketJournal.getPendingTicketIds());
+        client.ticketJournal.close();
+    }
+
+    @Test
+    public void journalFailureDoesNotFailTheRequest() throws Exception {
+        Path path = directory.resolve("tickets.journal");
+        PushClient client = new PushClient();
+        client.ticketJournal = new TicketJournal(path) {
+            @Override
+            public void record(String ticketId, long sentAt, String correlation) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+
+            @Override
+            public void acknowledge(Collection<String> ticketIds) {
+                throw new UncheckedIOException(new IOException("disk full"));
+            }
+        };
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture(
+                url.getPath().endsWith("/push/send")
+                        ? "{\"data\": [{\"status\": \"ok\", \"id\": \"ticket-1\"}]}"
+                        : "{\"data\": {\"ticket-1\": {\"status\": \"ok\"}}}");
+
+        List<ExpoPushMessage> messages = Collections.singletonList(new ExpoPushMessage("Recipient 1"));
+        ExpoPushChunkResult<ExpoPushMessage> result = client.sendPushNotificationsResultAsync(messages).get();
+        assertTrue(result.isSuccess());
+        assertEquals("ticket-1", client.sendPushNotificationsAsync(messages).get().get(0).getId());
+        assertTrue(client.getPushNotificationReceiptsResultAsync(Collections.singletonList("ticket-1")).get().isSuccess());
+        assertEquals(3, client.hookFailures.get());
+        client.ticketJournal.close();
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.robin536180.exposerversdk;
+
+import io.github.robin536180.exposerversdk.metrics.DefaultPushMetrics;
+import io.github.robin536180.exposerversdk.metrics.JfrPushMetrics;
+import io.github.robin536180.exposerversdk.metrics.PushMetrics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrPushMetricsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void requestsAndErrorsAreRecorded() throws Exception {
+        assertTrue(JfrPushMetrics.isAvailable());
+        PushClient client = new PushClient();
+        DefaultPushMetrics counters = new DefaultPushMetrics();
+        client.setPushMetrics(new JfrPushMetrics(counters));
+        client.pushServerResolver = (url, json) -> CompletableFuture.completedFuture("{\"data\":["
+                + "{\"status\":\"ok\",\"id\":\"a\"},"
+                + "{\"status\":\"error\",\"message\":\"gone\",\"details\":{\"error\":\"DeviceNotRegistered\"}}]}");
+
+        Path dump = directory.resolve("push.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("io.github.robin536180.exposerversdk.Request");
+            recording.enable("io.github.robin536180.exposerversdk.TicketError");
+            recording.enable("io.github.robin536180.exposerversdk.Phase");
+            recording.start();
+            client.sendPushNotificationsAsync(Collections.singletonList(
+                    new ExpoPushMessage(Arrays.asList("ExponentPushToken[a]", "ExponentPushToken[b]")))).join();
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        Map<String, List<RecordedEvent>> byName = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            byName.computeIfAbsent(event.getEventType().getName(), n -> new ArrayList<>()).add(event);
+        }
+
+        RecordedEvent request = byName.get("io.github.robin536180.exposerversdk.Request").get(0);
+        assertEquals("SEND", request.getString("operation"));
+        assertTrue(request.getBoolean("success"));
+        assertEquals("DEVICENOTREGISTERED",
+                byName.get("io.github.robin536180.exposerversdk.TicketError").get(0).getString("error"));
+        assertFalse(byName.get("io.github.robin536180.exposerversdk.Phase").isEmpty());
+        assertFalse(byName.containsKey("io.github.robin536180.exposerversdk.HttpExchange"));
+
+        assertEquals(1, counters.getRequestCount(PushMetrics.Operation.SEND));
+        assertEquals(1, counters.getTicketCount(io.github.robin536180.exposerversdk.enums.Status.OK));
+    }
+}